@@ -0,0 +1,117 @@
+package co.newlabs.cache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ExpiringLruCache<K, V> {
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    // expired entries are moved here on read, so they stop taking live capacity but can still be served stale
+    private final LinkedHashMap<K, V> staleEntries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ExpiringLruCache(final int maxEntries, final long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > ExpiringLruCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.staleEntries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > ExpiringLruCache.this.maxEntries;
+            }
+        };
+    }
+
+    public synchronized V get(final K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            entries.remove(key);
+            staleEntries.put(key, entry.value);
+            evictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    // the last value put for the key, whether or not it has expired; never evicts
+    public synchronized V getStale(final K key) {
+        Entry<V> entry = entries.get(key);
+        return entry != null ? entry.value : staleEntries.get(key);
+    }
+
+    public synchronized void put(final K key, final V value) {
+        staleEntries.remove(key);
+        entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+    }
+
+    public synchronized void invalidate(final K key) {
+        entries.remove(key);
+        staleEntries.remove(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        staleEntries.clear();
+    }
+
+    public synchronized List<V> values() {
+        List<V> values = new ArrayList<>(entries.size());
+        for (Entry<V> entry : entries.values()) {
+            values.add(entry.value);
+        }
+        return values;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(final V value, final long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(final long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
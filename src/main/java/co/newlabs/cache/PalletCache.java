@@ -0,0 +1,152 @@
+package co.newlabs.cache;
+
+import co.newlabs.dto.ItemDTO;
+import co.newlabs.dto.PalletDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+@Component
+public class PalletCache {
+    // rough retained sizes with compressed oops, used only for the footprint estimate
+    private static final long ENTRY_BYTES = 200L;
+    private static final long ITEM_BYTES = 120L;
+
+    private final ExpiringLruCache<Integer, Entry> pallets;
+    private final SingleFlight<Integer, PalletDTO> loads = new SingleFlight<>(PalletCache::copy);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public PalletCache(@Value("${pallets.cache.max-entries:10000}") int maxEntries,
+                       @Value("${pallets.cache.ttl-ms:60000}") long ttlMillis) {
+        this.pallets = new ExpiringLruCache<>(maxEntries, ttlMillis);
+    }
+
+    // callers get their own copy, so mutating a response never reaches the cache
+    public PalletDTO get(final int palletId) {
+        Entry entry = pallets.get(palletId);
+        if (entry == null || entry.pallet == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return copy(entry.pallet);
+    }
+
+    // the version the cached pallet was stored under, so a conditional read can be answered without a query
+    public OptionalLong getVersion(final int palletId) {
+        Entry entry = pallets.get(palletId);
+        if (entry == null || entry.pallet == null) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(entry.version);
+    }
+
+    // concurrent misses for the same pallet share one load; the caller that ran it gets the loaded instance, the rest get copies
+    public PalletDTO load(final int palletId, final Supplier<PalletDTO> loader) {
+        return loads.call(palletId, loader);
+    }
+
+    // a read that started before a newer write can never replace that write's entry or tombstone
+    public synchronized void put(final int palletId, final long version, final PalletDTO pallet) {
+        Entry current = pallets.getStale(palletId);
+        if (current == null || current.version <= version) {
+            pallets.put(palletId, new Entry(version, copy(pallet)));
+            loads.forget(palletId);
+        }
+    }
+
+    // a write derives its entry from the one it was applied to; without that entry the pallet is dropped instead
+    public synchronized PalletDTO update(final int palletId, final long version, final UnaryOperator<PalletDTO> change) {
+        Entry current = pallets.get(palletId);
+        if (current == null || current.pallet == null || current.version != version - 1) {
+            invalidate(palletId, version);
+            return null;
+        }
+        PalletDTO pallet = change.apply(copy(current.pallet));
+        pallets.put(palletId, new Entry(version, copy(pallet)));
+        loads.forget(palletId);
+        return pallet;
+    }
+
+    // readers arriving after a write must not join a load that started before it
+    public synchronized void invalidate(final int palletId, final long version) {
+        Entry current = pallets.getStale(palletId);
+        if (current == null || current.version <= version) {
+            pallets.put(palletId, new Entry(version, null));
+            loads.forget(palletId);
+        }
+    }
+
+    public void clear() {
+        pallets.clear();
+    }
+
+    public int size() {
+        return pallets.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return pallets.getEvictionCount();
+    }
+
+    public long getCollapsedLoadCount() {
+        return loads.getCollapsedCount();
+    }
+
+    public long getEstimatedBytes() {
+        long bytes = 0L;
+        for (Entry entry : pallets.values()) {
+            bytes += ENTRY_BYTES;
+            if (entry.pallet != null && entry.pallet.getItems() != null) {
+                bytes += ITEM_BYTES * entry.pallet.getItems().size();
+            }
+        }
+        return bytes;
+    }
+
+    private static PalletDTO copy(final PalletDTO pallet) {
+        List<ItemDTO> items = null;
+        if (pallet.getItems() != null) {
+            items = new ArrayList<>(pallet.getItems().size());
+            for (ItemDTO item : pallet.getItems()) {
+                items.add(ItemDTO.builder()
+                        .itemId(item.getItemId())
+                        .weight(item.getWeight())
+                        .product(item.getProduct())
+                        .build());
+            }
+        }
+        return PalletDTO.builder()
+                .palletId(pallet.getPalletId())
+                .accountId(pallet.getAccountId())
+                .destination(pallet.getDestination())
+                .items(items)
+                .currentWeight(pallet.getCurrentWeight())
+                .build();
+    }
+
+    private static final class Entry {
+        private final long version;
+        private final PalletDTO pallet;
+
+        private Entry(final long version, final PalletDTO pallet) {
+            this.version = version;
+            this.pallet = pallet;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package co.newlabs.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+// the first caller for a key runs the fetch, callers arriving before it completes share its result
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final UnaryOperator<V> share;
+    private final LongAdder collapsed = new LongAdder();
+
+    // share is applied to the value handed to each collapsed caller, e.g. to give them their own copy
+    public SingleFlight(final UnaryOperator<V> share) {
+        this.share = share;
+    }
+
+    public CompletableFuture<V> execute(final K key, final Supplier<CompletableFuture<V>> fetch) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            collapsed.increment();
+            return leader.thenApply(share);
+        }
+
+        CompletableFuture<V> result;
+        try {
+            result = fetch.get();
+        } catch (RuntimeException ex) {
+            result = new CompletableFuture<>();
+            result.completeExceptionally(ex);
+        }
+        result.whenComplete((value, ex) -> {
+            inFlight.remove(key, flight);
+            if (ex == null) {
+                flight.complete(value);
+            } else {
+                flight.completeExceptionally(ex instanceof CompletionException ? ex.getCause() : ex);
+            }
+        });
+        return flight.copy();
+    }
+
+    // the leader runs the fetch on its own thread, collapsed callers block until it is done
+    public V call(final K key, final Supplier<V> fetch) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            collapsed.increment();
+            try {
+                return share.apply(leader.join());
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw ex;
+            }
+        }
+
+        try {
+            V value = fetch.get();
+            inFlight.remove(key, flight);
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error ex) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(ex);
+            throw ex;
+        }
+    }
+
+    // callers after this start a new fetch, callers already waiting still get the old one
+    public void forget(final K key) {
+        inFlight.remove(key);
+    }
+
+    public int size() {
+        return inFlight.size();
+    }
+
+    public long getCollapsedCount() {
+        return collapsed.sum();
+    }
+}
@@ -0,0 +1,25 @@
+package co.newlabs.client;
+
+import java.util.concurrent.Semaphore;
+
+public class Bulkhead {
+    private final int maxConcurrentCalls;
+    private final Semaphore permits;
+
+    public Bulkhead(final int maxConcurrentCalls) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.permits = new Semaphore(maxConcurrentCalls);
+    }
+
+    public boolean tryAcquire() {
+        return permits.tryAcquire();
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int getActiveCalls() {
+        return maxConcurrentCalls - permits.availablePermits();
+    }
+}
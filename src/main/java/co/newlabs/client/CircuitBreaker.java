@@ -0,0 +1,100 @@
+package co.newlabs.client;
+
+import java.util.concurrent.TimeUnit;
+
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final boolean[] outcomes;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int halfOpenCalls;
+
+    private State state = State.CLOSED;
+    private int next;
+    private int recorded;
+    private int failures;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    public CircuitBreaker(final int windowSize, final int minimumCalls, final double failureRateThreshold,
+                          final long openMillis, final int halfOpenCalls) {
+        this.outcomes = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.halfOpenCalls = halfOpenCalls;
+    }
+
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            halfOpenPermits = halfOpenCalls;
+            halfOpenSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits == 0) {
+                return false;
+            }
+            halfOpenPermits--;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSuccesses >= halfOpenCalls) {
+                close();
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recorded >= minimumCalls && (double) failures / recorded >= failureRateThreshold) {
+                open();
+            }
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(final boolean failure) {
+        if (recorded == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        next = 0;
+        recorded = 0;
+        failures = 0;
+    }
+}
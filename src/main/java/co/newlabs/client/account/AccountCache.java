@@ -0,0 +1,71 @@
+package co.newlabs.client.account;
+
+import co.newlabs.cache.ExpiringLruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class AccountCache {
+    private final ExpiringLruCache<Long, AccountDTO> accounts;
+    private final ExpiringLruCache<Long, Boolean> warehouseAccounts;
+
+    public AccountCache(@Value("${accounts.cache.max-entries:10000}") int maxEntries,
+                        @Value("${accounts.cache.ttl-ms:300000}") long ttlMillis,
+                        @Value("${accounts.cache.warehouse-ttl-ms:3600000}") long warehouseTtlMillis) {
+        this.accounts = new ExpiringLruCache<>(maxEntries, ttlMillis);
+        this.warehouseAccounts = new ExpiringLruCache<>(maxEntries, warehouseTtlMillis);
+    }
+
+    public AccountDTO get(final long accountId) {
+        return accounts.get(accountId);
+    }
+
+    public AccountDTO getStale(final long accountId) {
+        return accounts.getStale(accountId);
+    }
+
+    public void put(final long accountId, final AccountDTO account) {
+        accounts.put(accountId, account);
+    }
+
+    public void evict(final long accountId) {
+        accounts.invalidate(accountId);
+    }
+
+    public boolean isWarehouseAccount(final long accountId) {
+        return warehouseAccounts.get(accountId) != null;
+    }
+
+    public void markWarehouseAccount(final long accountId) {
+        warehouseAccounts.put(accountId, Boolean.TRUE);
+    }
+
+    public void unmarkWarehouseAccount(final long accountId) {
+        warehouseAccounts.invalidate(accountId);
+    }
+
+    public void clear() {
+        accounts.clear();
+        warehouseAccounts.clear();
+    }
+
+    public int size() {
+        return accounts.size();
+    }
+
+    public long getHitCount() {
+        return accounts.getHitCount();
+    }
+
+    public long getMissCount() {
+        return accounts.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return accounts.getEvictionCount();
+    }
+
+    public long getWarehouseHitCount() {
+        return warehouseAccounts.getHitCount();
+    }
+}
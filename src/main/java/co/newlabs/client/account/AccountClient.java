@@ -1,39 +1,311 @@
 package co.newlabs.client.account;
 
+import co.newlabs.cache.SingleFlight;
+import co.newlabs.client.Bulkhead;
+import co.newlabs.client.CircuitBreaker;
 import co.newlabs.exception.AccountAccessException;
+import co.newlabs.metrics.PalletMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
 @Service
 public class AccountClient {
+    private static final String ACTIVE = "active";
+    private static final String WAREHOUSE = "warehouse";
+
     private final String url;
     private final String warehouseurl;
     private final RestTemplate restTemplate;
+    private final AccountCache accountCache;
+    private final ExecutorService accountExecutor;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final PalletMetrics metrics;
+    private final boolean hedgeEnabled;
+    private final double hedgePercentile;
+    private final long hedgeMinDelayMillis;
+    private final LatencyWindow activeLatencies = new LatencyWindow(256);
+    private final SingleFlight<Long, AccountDTO> lookups = new SingleFlight<>(UnaryOperator.identity());
 
-    public AccountClient(@Value("${urls.activeaccounts}") String url, @Value("${urls.warehouseaccounts}") String warehouseurl, RestTemplate restTemplate) {
+    public AccountClient(@Value("${urls.activeaccounts}") String url, @Value("${urls.warehouseaccounts}") String warehouseurl, RestTemplate restTemplate, AccountCache accountCache,
+                         ExecutorService accountExecutor, CircuitBreaker accountCircuitBreaker, Bulkhead accountBulkhead, PalletMetrics metrics,
+                         @Value("${accounts.hedge.enabled:false}") boolean hedgeEnabled,
+                         @Value("${accounts.hedge.percentile:0.95}") double hedgePercentile,
+                         @Value("${accounts.hedge.min-delay-ms:20}") long hedgeMinDelayMillis) {
         this.url = url;
         this.warehouseurl = warehouseurl;
         this.restTemplate = restTemplate;
+        this.accountCache = accountCache;
+        this.accountExecutor = accountExecutor;
+        this.circuitBreaker = accountCircuitBreaker;
+        this.bulkhead = accountBulkhead;
+        this.metrics = metrics;
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgePercentile = hedgePercentile;
+        this.hedgeMinDelayMillis = hedgeMinDelayMillis;
+        metrics.registerCollapsedAccountLookups(lookups, SingleFlight::getCollapsedCount);
     }
 
     public AccountDTO getAccountDetailsById(final long id) {
+        AccountDTO cached = accountCache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        return lookups.call(id, () -> lookup(id));
+    }
+
+    // concurrent misses for the same account share one lookup, so only the first takes a bulkhead permit
+    public CompletableFuture<AccountDTO> getAccountDetailsByIdAsync(final long id) {
+        AccountDTO cached = accountCache.get(id);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return lookups.execute(id, () -> lookupAsync(id));
+    }
+
+    // never calls the accounts service: a live or stale cached account, or null when it has not been looked up yet
+    public AccountDTO getCachedAccountDetailsById(final long id) {
+        AccountDTO cached = accountCache.get(id);
+        return cached != null ? cached : accountCache.getStale(id);
+    }
+
+    private AccountDTO lookup(final long id) {
+        if (!acquirePermission()) {
+            return fallback(id);
+        }
         try {
-            ResponseEntity<AccountDTO> response = restTemplate.getForEntity(url + id, AccountDTO.class);
-            return response.getBody();
+            AccountDTO account = accountCache.isWarehouseAccount(id) ? getKnownWarehouseAccount(id) : getAccount(id);
+            circuitBreaker.onSuccess();
+            return cache(id, account);
         } catch (HttpClientErrorException clientEx) {
-            if (HttpStatus.NOT_FOUND.equals(clientEx.getStatusCode())) {
-                ResponseEntity<AccountDTO> response = restTemplate.getForEntity(warehouseurl + id, AccountDTO.class);
-                return response.getBody();
+            circuitBreaker.onSuccess();
+            throw clientEx;
+        } catch (AccountAccessException ex) {
+            circuitBreaker.onFailure();
+            return fallback(id);
+        } catch (RuntimeException ex) {
+            circuitBreaker.onFailure();
+            throw ex;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    private CompletableFuture<AccountDTO> lookupAsync(final long id) {
+        if (!acquirePermission()) {
+            return CompletableFuture.supplyAsync(() -> fallback(id), Runnable::run);
+        }
+        CompletableFuture<AccountDTO> lookup;
+        if (accountCache.isWarehouseAccount(id)) {
+            lookup = CompletableFuture.supplyAsync(() -> getKnownWarehouseAccount(id), accountExecutor);
+        } else if (!hedgeEnabled) {
+            lookup = CompletableFuture.supplyAsync(() -> getAccount(id), accountExecutor);
+        } else {
+            lookup = getAccountHedged(id);
+        }
+        return lookup.handle((account, ex) -> {
+            bulkhead.release();
+            if (ex == null) {
+                circuitBreaker.onSuccess();
+                return cache(id, account);
+            }
+            Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+            if (cause instanceof HttpClientErrorException) {
+                circuitBreaker.onSuccess();
             } else {
+                circuitBreaker.onFailure();
+                if (cause instanceof AccountAccessException) {
+                    return fallback(id);
+                }
+            }
+            throw new CompletionException(cause);
+        });
+    }
+
+    private boolean acquirePermission() {
+        if (!bulkhead.tryAcquire()) {
+            return false;
+        }
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bulkhead.release();
+            return false;
+        }
+        return true;
+    }
+
+    // serves the last known account, even if expired, while the accounts service is failing
+    private AccountDTO fallback(final long id) {
+        AccountDTO stale = accountCache.getStale(id);
+        if (stale != null) {
+            metrics.recordAccountFallback("stale");
+            return stale;
+        }
+        metrics.recordAccountFallback("unavailable");
+        throw new AccountAccessException();
+    }
+
+    private AccountDTO cache(final long id, final AccountDTO account) {
+        if (account != null) {
+            accountCache.put(id, account);
+        }
+        return account;
+    }
+
+    private AccountDTO getAccount(final long id) {
+        try {
+            return getActiveAccount(id);
+        } catch (HttpClientErrorException clientEx) {
+            if (!HttpStatus.NOT_FOUND.equals(clientEx.getStatusCode())) {
                 throw new AccountAccessException();
             }
-        } catch (HttpServerErrorException serverEx) {
+        } catch (HttpServerErrorException | ResourceAccessException ex) {
             throw new AccountAccessException();
         }
+        AccountDTO account = getFallbackWarehouseAccount(id);
+        accountCache.markWarehouseAccount(id);
+        return account;
+    }
+
+    private AccountDTO getKnownWarehouseAccount(final long id) {
+        try {
+            return getWarehouseAccount(id);
+        } catch (HttpClientErrorException clientEx) {
+            if (!HttpStatus.NOT_FOUND.equals(clientEx.getStatusCode())) {
+                throw new AccountAccessException();
+            }
+        } catch (HttpServerErrorException | ResourceAccessException ex) {
+            throw new AccountAccessException();
+        }
+        accountCache.unmarkWarehouseAccount(id);
+        return getAccount(id);
+    }
+
+    // the warehouse is the last place to look, so any failure there, a 404 included, is reported like an active one
+    private AccountDTO getFallbackWarehouseAccount(final long id) {
+        try {
+            return getWarehouseAccount(id);
+        } catch (HttpClientErrorException | HttpServerErrorException | ResourceAccessException ex) {
+            throw new AccountAccessException();
+        }
+    }
+
+    private AccountDTO getActiveAccount(final long id) {
+        long start = System.nanoTime();
+        ResponseEntity<AccountDTO> response;
+        try {
+            response = restTemplate.getForEntity(url + id, AccountDTO.class);
+        } catch (RuntimeException ex) {
+            metrics.recordAccountCall(ACTIVE, outcome(ex), System.nanoTime() - start);
+            throw ex;
+        }
+        long elapsed = System.nanoTime() - start;
+        activeLatencies.record(elapsed);
+        metrics.recordAccountCall(ACTIVE, "success", elapsed);
+        return response.getBody();
+    }
+
+    private AccountDTO getWarehouseAccount(final long id) {
+        long start = System.nanoTime();
+        try {
+            ResponseEntity<AccountDTO> response = restTemplate.getForEntity(warehouseurl + id, AccountDTO.class);
+            metrics.recordAccountCall(WAREHOUSE, "success", System.nanoTime() - start);
+            return response.getBody();
+        } catch (RuntimeException ex) {
+            metrics.recordAccountCall(WAREHOUSE, outcome(ex), System.nanoTime() - start);
+            throw ex;
+        }
+    }
+
+    private static String outcome(final RuntimeException ex) {
+        if (ex instanceof HttpClientErrorException
+                && HttpStatus.NOT_FOUND.equals(((HttpClientErrorException) ex).getStatusCode())) {
+            return "not_found";
+        }
+        return "error";
+    }
+
+    private CompletableFuture<AccountDTO> getAccountHedged(final long id) {
+        AtomicReference<CompletableFuture<AccountDTO>> warehouse = new AtomicReference<>();
+        CompletableFuture<AccountDTO> active = CompletableFuture.supplyAsync(() -> getActiveAccount(id), accountExecutor);
+
+        // if the active lookup is slower than usual, start the warehouse lookup it would fall back to anyway
+        long delayNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(hedgeMinDelayMillis), activeLatencies.percentile(hedgePercentile));
+        CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS, accountExecutor).execute(() -> {
+            if (!active.isDone()) {
+                startWarehouseLookup(id, warehouse);
+            }
+        });
+
+        return active.handle((account, ex) -> {
+            if (ex == null) {
+                return CompletableFuture.completedFuture(account);
+            }
+            Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+            if (cause instanceof HttpClientErrorException
+                    && HttpStatus.NOT_FOUND.equals(((HttpClientErrorException) cause).getStatusCode())) {
+                accountCache.markWarehouseAccount(id);
+                return startWarehouseLookup(id, warehouse);
+            }
+            CompletableFuture<AccountDTO> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new AccountAccessException());
+            return failed;
+        }).thenCompose(future -> future);
+    }
+
+    private CompletableFuture<AccountDTO> startWarehouseLookup(final long id, final AtomicReference<CompletableFuture<AccountDTO>> warehouse) {
+        CompletableFuture<AccountDTO> lookup = new CompletableFuture<>();
+        if (warehouse.compareAndSet(null, lookup)) {
+            accountExecutor.execute(() -> {
+                try {
+                    lookup.complete(getFallbackWarehouseAccount(id));
+                } catch (RuntimeException ex) {
+                    lookup.completeExceptionally(ex);
+                }
+            });
+        }
+        return warehouse.get();
+    }
+
+    private static final class LatencyWindow {
+        private final long[] samples;
+        private int next;
+        private int count;
+
+        private LatencyWindow(final int size) {
+            this.samples = new long[size];
+        }
+
+        private synchronized void record(final long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        private long percentile(final double percentile) {
+            long[] sorted;
+            synchronized (this) {
+                if (count == 0) {
+                    return 0L;
+                }
+                sorted = new long[count];
+                System.arraycopy(samples, 0, sorted, 0, count);
+            }
+            Arrays.sort(sorted);
+            return sorted[Math.min(sorted.length - 1, (int) (percentile * sorted.length))];
+        }
     }
 }
@@ -1,15 +1,65 @@
 package co.newlabs.configuration;
 
+import co.newlabs.client.Bulkhead;
+import co.newlabs.client.CircuitBreaker;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
+@EnableScheduling
 public class AppConfiguration {
 
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder) {
-        return builder.build();
+    public RestTemplate restTemplate(RestTemplateBuilder builder,
+                                     @Value("${accounts.http.max-connections:64}") int maxConnections,
+                                     @Value("${accounts.http.keep-alive-ms:30000}") long keepAliveMillis,
+                                     @Value("${accounts.http.connect-timeout-ms:1000}") int connectTimeoutMillis,
+                                     @Value("${accounts.http.read-timeout-ms:2000}") int readTimeoutMillis) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(keepAliveMillis, TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy((response, context) -> keepAliveMillis)
+                .build();
+
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        requestFactory.setConnectTimeout(connectTimeoutMillis);
+        requestFactory.setConnectionRequestTimeout(connectTimeoutMillis);
+        requestFactory.setReadTimeout(readTimeoutMillis);
+
+        return builder.requestFactory(() -> requestFactory).build();
+    }
+
+    @Bean
+    public CircuitBreaker accountCircuitBreaker(@Value("${accounts.circuit-breaker.window-size:50}") int windowSize,
+                                                @Value("${accounts.circuit-breaker.minimum-calls:20}") int minimumCalls,
+                                                @Value("${accounts.circuit-breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                                                @Value("${accounts.circuit-breaker.open-ms:10000}") long openMillis,
+                                                @Value("${accounts.circuit-breaker.half-open-calls:5}") int halfOpenCalls) {
+        return new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold, openMillis, halfOpenCalls);
+    }
+
+    @Bean
+    public Bulkhead accountBulkhead(@Value("${accounts.bulkhead.max-concurrent-calls:32}") int maxConcurrentCalls) {
+        return new Bulkhead(maxConcurrentCalls);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService accountExecutor(@Value("${accounts.executor.threads:16}") int threads) {
+        return Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("account-"));
     }
 }
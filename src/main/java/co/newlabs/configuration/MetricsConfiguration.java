@@ -0,0 +1,70 @@
+package co.newlabs.configuration;
+
+import co.newlabs.cache.PalletCache;
+import co.newlabs.client.Bulkhead;
+import co.newlabs.client.CircuitBreaker;
+import co.newlabs.client.account.AccountCache;
+import co.newlabs.writebehind.ItemWriteBuffer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfiguration {
+
+    // gauges read the existing counters on scrape, so the account path does no extra work;
+    // AccountClient registers its own collapsed lookups, since it sits behind the RestTemplate the registry instruments
+    @Bean
+    public MeterBinder accountMetrics(AccountCache accountCache, CircuitBreaker accountCircuitBreaker, Bulkhead accountBulkhead) {
+        return registry -> {
+            Gauge.builder("accounts.cache.size", accountCache, AccountCache::size)
+                    .register(registry);
+            FunctionCounter.builder("accounts.cache.requests", accountCache, AccountCache::getHitCount)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("accounts.cache.requests", accountCache, AccountCache::getMissCount)
+                    .tag("result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("accounts.cache.evictions", accountCache, AccountCache::getEvictionCount)
+                    .register(registry);
+            FunctionCounter.builder("accounts.cache.warehouse.hits", accountCache, AccountCache::getWarehouseHitCount)
+                    .register(registry);
+            for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+                Gauge.builder("accounts.circuit.breaker.state", accountCircuitBreaker, breaker -> breaker.getState() == state ? 1 : 0)
+                        .tag("state", state.name().toLowerCase())
+                        .register(registry);
+            }
+            Gauge.builder("accounts.bulkhead.active.calls", accountBulkhead, Bulkhead::getActiveCalls)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder palletCacheMetrics(PalletCache palletCache) {
+        return registry -> {
+            Gauge.builder("pallets.cache.size", palletCache, PalletCache::size)
+                    .register(registry);
+            Gauge.builder("pallets.cache.footprint", palletCache, PalletCache::getEstimatedBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+            FunctionCounter.builder("pallets.cache.requests", palletCache, PalletCache::getHitCount)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("pallets.cache.requests", palletCache, PalletCache::getMissCount)
+                    .tag("result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("pallets.cache.evictions", palletCache, PalletCache::getEvictionCount)
+                    .register(registry);
+            FunctionCounter.builder("pallets.loads.collapsed", palletCache, PalletCache::getCollapsedLoadCount)
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder itemWriteBufferMetrics(ItemWriteBuffer itemWriteBuffer) {
+        return registry -> Gauge.builder("items.write.behind.pending", itemWriteBuffer, ItemWriteBuffer::getPendingChanges)
+                .register(registry);
+    }
+}
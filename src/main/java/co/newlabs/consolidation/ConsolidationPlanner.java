@@ -0,0 +1,96 @@
+package co.newlabs.consolidation;
+
+import co.newlabs.planning.BinPacker;
+import co.newlabs.planning.PackingStrategy;
+import co.newlabs.planning.Packing;
+import co.newlabs.repository.item.ItemEntity;
+import co.newlabs.repository.pallet.PalletEntity;
+import co.newlabs.repository.pallet.PalletWeightEntity;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// drains the lightest pallets first into the account's other loaded pallets, best fit heaviest item first.
+// A pallet is only drained when all of its items fit; moving part of one would not save a pallet.
+public final class ConsolidationPlanner {
+
+    private ConsolidationPlanner() {
+    }
+
+    public static List<PalletDrain> plan(final List<PalletWeightEntity> pallets, final List<PalletEntity> sources, final double capacity) {
+        // empty pallets are never targets, filling one saves nothing
+        Map<Integer, Double> loads = new LinkedHashMap<>();
+        for (PalletWeightEntity pallet : pallets) {
+            if (pallet.getWeight() > 0) {
+                loads.put(pallet.getPalletId(), pallet.getWeight());
+            }
+        }
+        List<PalletEntity> lightestFirst = new ArrayList<>(sources);
+        lightestFirst.sort(Comparator.comparingDouble(ConsolidationPlanner::weightOf));
+
+        List<PalletDrain> drains = new ArrayList<>();
+        Set<Integer> received = new HashSet<>();
+        for (PalletEntity source : lightestFirst) {
+            // a pallet that takes items stays, otherwise they would have to move twice
+            if (source.getItems().isEmpty() || received.contains(source.getPalletId())) {
+                continue;
+            }
+            Double sourceLoad = loads.remove(source.getPalletId());
+
+            int[] targetIds = new int[loads.size()];
+            double[] targetLoads = new double[loads.size()];
+            int bin = 0;
+            for (Map.Entry<Integer, Double> target : loads.entrySet()) {
+                targetIds[bin] = target.getKey();
+                targetLoads[bin++] = target.getValue();
+            }
+            double[] weights = new double[source.getItems().size()];
+            for (int item = 0; item < weights.length; item++) {
+                weights[item] = source.getItems().get(item).getWeight();
+            }
+            Packing packing = BinPacker.pack(weights, targetLoads, capacity, PackingStrategy.BEST_FIT, Integer.MAX_VALUE);
+            if (!fitsOpenBins(packing, targetIds.length)) {
+                if (sourceLoad != null) {
+                    loads.put(source.getPalletId(), sourceLoad);
+                }
+                continue;
+            }
+
+            Map<Integer, List<ItemEntity>> itemsByTarget = new TreeMap<>();
+            for (int item = 0; item < weights.length; item++) {
+                int target = targetIds[packing.getBins()[item]];
+                itemsByTarget.computeIfAbsent(target, id -> new ArrayList<>()).add(source.getItems().get(item));
+                loads.merge(target, weights[item], Double::sum);
+                received.add(target);
+            }
+            drains.add(new PalletDrain(source.getPalletId(), itemsByTarget));
+        }
+        return drains;
+    }
+
+    private static boolean fitsOpenBins(final Packing packing, final int openBins) {
+        if (packing.getBinCount() > openBins) {
+            return false;
+        }
+        for (int bin : packing.getBins()) {
+            if (bin == BinPacker.UNPLACED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static double weightOf(final PalletEntity pallet) {
+        double weight = 0d;
+        for (ItemEntity item : pallet.getItems()) {
+            weight += item.getWeight();
+        }
+        return weight;
+    }
+}
@@ -0,0 +1,120 @@
+package co.newlabs.consolidation;
+
+import co.newlabs.cache.PalletCache;
+import co.newlabs.dto.PalletDTO;
+import co.newlabs.metrics.PalletMetrics;
+import co.newlabs.repository.item.ItemMoveEntity;
+import co.newlabs.repository.item.ItemRepository;
+import co.newlabs.repository.pallet.PalletRepository;
+import co.newlabs.repository.pallet.PalletWeightEntity;
+import co.newlabs.writebehind.ItemWriteBuffer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Component
+public class PalletConsolidationJob {
+    private final PalletRepository palletRepository;
+    private final ItemRepository itemRepository;
+    private final PalletCache palletCache;
+    private final ItemWriteBuffer writeBuffer;
+    private final PalletMetrics metrics;
+    private final boolean enabled;
+    private final double underFilledWeight;
+    private final int maxDrainsPerRun;
+    private final long pauseMillis;
+
+    public PalletConsolidationJob(PalletRepository palletRepository, ItemRepository itemRepository, PalletCache palletCache,
+                                  ItemWriteBuffer writeBuffer, PalletMetrics metrics,
+                                  @Value("${pallets.consolidation.enabled:false}") boolean enabled,
+                                  @Value("${pallets.consolidation.under-filled-ratio:0.5}") double underFilledRatio,
+                                  @Value("${pallets.consolidation.max-drains-per-run:100}") int maxDrainsPerRun,
+                                  @Value("${pallets.consolidation.pause-ms:50}") long pauseMillis) {
+        this.palletRepository = palletRepository;
+        this.itemRepository = itemRepository;
+        this.palletCache = palletCache;
+        this.writeBuffer = writeBuffer;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.underFilledWeight = underFilledRatio * PalletDTO.MAX_WEIGHT;
+        this.maxDrainsPerRun = maxDrainsPerRun;
+        this.pauseMillis = pauseMillis;
+    }
+
+    @Scheduled(initialDelayString = "${pallets.consolidation.interval-ms:300000}",
+            fixedDelayString = "${pallets.consolidation.interval-ms:300000}")
+    public void scheduledRun() {
+        if (enabled) {
+            log.info("Pallet consolidation emptied {} pallets.", consolidate());
+        }
+    }
+
+    // each drain is its own short transaction with a pause after it, so live writes to the same pallets
+    // only ever wait on one drain; returns the number of pallets emptied
+    public int consolidate() {
+        if (writeBuffer.isEnabled()) {
+            // buffered adds check the weight against in-memory pallets the moves would not update
+            log.warn("Pallet consolidation does not run while items are written behind.");
+            return 0;
+        }
+
+        int drained = 0;
+        for (Integer accountId : palletRepository.getAccountsWithUnderFilledPallets(underFilledWeight)) {
+            List<PalletWeightEntity> pallets = palletRepository.getPalletWeights(accountId, null);
+            List<Integer> sourceIds = new ArrayList<>();
+            for (PalletWeightEntity pallet : pallets) {
+                if (pallet.getWeight() > 0 && pallet.getWeight() < underFilledWeight) {
+                    sourceIds.add(pallet.getPalletId());
+                }
+            }
+
+            for (PalletDrain drain : ConsolidationPlanner.plan(pallets, palletRepository.getPalletsWithItems(sourceIds), PalletDTO.MAX_WEIGHT)) {
+                if (drained >= maxDrainsPerRun) {
+                    return drained;
+                }
+                if (drain(drain)) {
+                    drained++;
+                }
+                if (!pause()) {
+                    return drained;
+                }
+            }
+        }
+        return drained;
+    }
+
+    // only counts as a drain when the source really ended up empty, not just when the planned items moved
+    private boolean drain(final PalletDrain drain) {
+        try {
+            ItemMoveEntity move = itemRepository.moveItems(drain.getSourcePalletId(), drain.getItemsByTarget(), PalletDTO.MAX_WEIGHT);
+            move.getVersions().forEach(palletCache::invalidate);
+            if (!move.isEmptied()) {
+                metrics.recordItemsMoved(move.getMovedItems());
+                return false;
+            }
+            metrics.recordPalletDrained(move.getMovedItems());
+            return true;
+        } catch (RuntimeException ex) {
+            log.error("Unable to drain pallet {}.", drain.getSourcePalletId(), ex);
+            return false;
+        }
+    }
+
+    private boolean pause() {
+        if (pauseMillis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(pauseMillis);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package co.newlabs.consolidation;
+
+import co.newlabs.repository.item.ItemEntity;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@AllArgsConstructor
+public class PalletDrain {
+    private final int sourcePalletId;
+    // every item on the source, keyed by the pallet it moves to
+    private final Map<Integer, List<ItemEntity>> itemsByTarget;
+
+    public int getItemCount() {
+        int count = 0;
+        for (List<ItemEntity> items : itemsByTarget.values()) {
+            count += items.size();
+        }
+        return count;
+    }
+}
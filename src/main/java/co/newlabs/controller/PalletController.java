@@ -1,29 +1,124 @@
 package co.newlabs.controller;
 
 import co.newlabs.dto.ItemDTO;
+import co.newlabs.dto.LoadPlanRequestDTO;
+import co.newlabs.dto.PalletDTO;
+import co.newlabs.dto.PalletView;
+import co.newlabs.dto.PalletViewDTO;
+import co.newlabs.service.LoadPlanService;
 import co.newlabs.service.PalletService;
+import co.newlabs.writebehind.Durability;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 @RestController
 @AllArgsConstructor
 @RequestMapping("/pallet")
 public class PalletController {
     private PalletService service;
+    private LoadPlanService loadPlanService;
+    private ObjectMapper objectMapper;
+
+    @GetMapping
+    public ResponseEntity getPalletsByIds(@RequestParam List<Integer> ids) {
+        return ResponseEntity.ok(service.getPalletsByIds(ids));
+    }
 
+    // the version is read before the pallet, so the tag can only ever be older than the body it is sent with
     @GetMapping("/{id}")
-    public ResponseEntity getPalletById(@PathVariable int id) {
-        return ResponseEntity.ok(service.getPalletById(id));
+    public ResponseEntity getPalletById(@PathVariable int id, @RequestParam(defaultValue = "full") PalletView view,
+                                        WebRequest request) {
+        String eTag = eTag(id, service.getPalletVersion(id), view);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        PalletDTO pallet = service.getPalletById(id, view);
+        // full keeps sending its null fields, only the narrower views leave out what they do not carry
+        Object body = view == PalletView.FULL ? pallet : PalletViewDTO.of(pallet);
+        if (pallet.isDestinationUnresolved()) {
+            // the tag only covers the version, so a body built during an accounts outage must never be revalidated
+            return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(body);
+        }
+        return ResponseEntity.ok().eTag(eTag).body(body);
+    }
+
+    @GetMapping(value = "/{id}/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamPalletById(@PathVariable int id) {
+        PalletDTO pallet = service.getPalletHeaderById(id);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(out -> writePallet(pallet, out));
+    }
+
+    @PostMapping("/plan")
+    public ResponseEntity planLoad(@RequestBody LoadPlanRequestDTO request) {
+        return ResponseEntity.ok(loadPlanService.planLoad(request));
     }
 
     @PostMapping("/{id}/add")
-    public ResponseEntity addItemToPallet(@PathVariable int id, @RequestBody ItemDTO item) {
-        return ResponseEntity.ok(service.addItemToPallet(item, id));
+    public ResponseEntity addItemToPallet(@PathVariable int id, @RequestBody ItemDTO item,
+                                          @RequestParam(required = false) Durability durability) {
+        return ResponseEntity.ok(service.addItemToPallet(item, id, durability));
+    }
+
+    @PostMapping("/{id}/items")
+    public ResponseEntity addItemsToPallet(@PathVariable int id, @RequestBody List<ItemDTO> items) {
+        return ResponseEntity.ok(service.addItemsToPallet(items, id));
     }
 
     @GetMapping("/{palletId}/remove/{itemId}")
-    public ResponseEntity removeItemFromPallet(@PathVariable int palletId, @PathVariable int itemId) {
-        return ResponseEntity.ok(service.removeItemFromPallet(itemId, palletId));
+    public ResponseEntity removeItemFromPallet(@PathVariable int palletId, @PathVariable int itemId,
+                                               @RequestParam(required = false) Durability durability) {
+        return ResponseEntity.ok(service.removeItemFromPallet(itemId, palletId, durability));
+    }
+
+    @PostMapping("/{id}/items/remove")
+    public ResponseEntity removeItemsFromPallet(@PathVariable int id, @RequestBody Set<Integer> itemIds) {
+        return ResponseEntity.ok(service.removeItemsFromPallet(itemIds, id));
+    }
+
+    // writes the pallet in the PalletDTO layout, with the items written as the service reads them
+    private void writePallet(PalletDTO pallet, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeNumberField("palletId", pallet.getPalletId());
+            generator.writeNumberField("accountId", pallet.getAccountId());
+            generator.writeStringField("destination", pallet.getDestination());
+            generator.writeArrayFieldStart("items");
+            double[] currentWeight = {0d};
+            try {
+                service.streamItemsByPalletId(pallet.getPalletId(), item -> {
+                    try {
+                        generator.writeObject(item);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                    currentWeight[0] += item.getWeight();
+                });
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+            generator.writeEndArray();
+            generator.writeNumberField("currentWeight", currentWeight[0]);
+            generator.writeEndObject();
+        }
+    }
+
+    // each view is its own representation, so it needs its own tag; full keeps the plain one
+    private static String eTag(int id, long version, PalletView view) {
+        String suffix = view == PalletView.FULL ? "" : "-" + view.name().toLowerCase(Locale.ROOT);
+        return "\"" + id + "-" + version + suffix + "\"";
     }
 }
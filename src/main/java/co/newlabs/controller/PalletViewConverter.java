@@ -0,0 +1,17 @@
+package co.newlabs.controller;
+
+import co.newlabs.dto.PalletView;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+// lets callers write ?view=summary; unknown views are rejected with a 400 like any other bad parameter
+@Component
+public class PalletViewConverter implements Converter<String, PalletView> {
+
+    @Override
+    public PalletView convert(String source) {
+        return PalletView.valueOf(source.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,18 @@
+package co.newlabs.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemRemovalDTO {
+    private int palletId;
+    private List<Integer> removedItemIds;
+    private List<Integer> notOnPalletItemIds;
+}
@@ -0,0 +1,20 @@
+package co.newlabs.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoadPlanDTO {
+    private int accountId;
+    private List<PlannedPalletDTO> pallets;
+    private int newPallets;
+    // items heavier than a pallet can carry
+    private List<ItemDTO> unplaced;
+}
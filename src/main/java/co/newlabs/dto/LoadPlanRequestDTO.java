@@ -0,0 +1,21 @@
+package co.newlabs.dto;
+
+import co.newlabs.planning.PackingStrategy;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoadPlanRequestDTO {
+    private int accountId;
+    // candidate pallets; every pallet of the account when left out
+    private List<Integer> palletIds;
+    private List<ItemDTO> items;
+    private PackingStrategy strategy;
+}
@@ -1,5 +1,6 @@
 package co.newlabs.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -19,4 +20,12 @@ public class PalletDTO {
     private double currentWeight;
 
     public static final double MAX_WEIGHT = 4600d;
+    // sent when the accounts service could not be reached
+    public static final String UNRESOLVED_DESTINATION = "";
+
+    // a fallback destination only reflects a passing outage, so the pallet must not be cached with it
+    @JsonIgnore
+    public boolean isDestinationUnresolved() {
+        return UNRESOLVED_DESTINATION.equals(destination);
+    }
 }
@@ -0,0 +1,25 @@
+package co.newlabs.dto;
+
+public enum PalletView {
+    // weight and destination, without loading or mapping the items
+    SUMMARY(false, true),
+    // items and weight, without calling the accounts service
+    ITEMS(true, false),
+    FULL(true, true);
+
+    private final boolean items;
+    private final boolean destination;
+
+    PalletView(final boolean items, final boolean destination) {
+        this.items = items;
+        this.destination = destination;
+    }
+
+    public boolean includesItems() {
+        return items;
+    }
+
+    public boolean includesDestination() {
+        return destination;
+    }
+}
@@ -0,0 +1,33 @@
+package co.newlabs.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// a narrower view of a pallet, which leaves out what it does not carry instead of sending it as null
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PalletViewDTO {
+    private int palletId;
+    private int accountId;
+    private String destination;
+    private List<ItemDTO> items;
+    private double currentWeight;
+
+    public static PalletViewDTO of(final PalletDTO pallet) {
+        return PalletViewDTO.builder()
+                .palletId(pallet.getPalletId())
+                .accountId(pallet.getAccountId())
+                .destination(pallet.getDestination())
+                .items(pallet.getItems())
+                .currentWeight(pallet.getCurrentWeight())
+                .build();
+    }
+}
@@ -0,0 +1,20 @@
+package co.newlabs.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlannedPalletDTO {
+    // 0 for a pallet that has to be created
+    private int palletId;
+    private List<ItemDTO> items;
+    // weight once the planned items are on the pallet
+    private double currentWeight;
+}
@@ -0,0 +1,53 @@
+package co.newlabs.mapper;
+
+import co.newlabs.dto.ItemDTO;
+import co.newlabs.dto.PalletDTO;
+import co.newlabs.repository.item.ItemEntity;
+import co.newlabs.repository.pallet.PalletEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+public class PalletMapper {
+
+    public PalletDTO toPalletDTO(final PalletEntity entity) {
+        return PalletDTO.builder()
+                .palletId(entity.getPalletId())
+                .accountId(entity.getAccountId())
+                .build();
+    }
+
+    public ItemDTO toItemDTO(final ItemEntity entity) {
+        return ItemDTO.builder()
+                .itemId(entity.getItemId())
+                .weight(entity.getWeight())
+                .product(entity.getProduct())
+                .build();
+    }
+
+    public List<ItemDTO> toItemDTOs(final List<ItemEntity> entities) {
+        List<ItemDTO> items = new ArrayList<>(entities.size());
+        for (ItemEntity entity : entities) {
+            items.add(toItemDTO(entity));
+        }
+        return items;
+    }
+
+    public ItemEntity toItemEntity(final ItemDTO item) {
+        return ItemEntity.builder()
+                .itemId(item.getItemId())
+                .weight(item.getWeight())
+                .product(item.getProduct())
+                .build();
+    }
+
+    public List<ItemEntity> toItemEntities(final List<ItemDTO> items) {
+        List<ItemEntity> entities = new ArrayList<>(items.size());
+        for (ItemDTO item : items) {
+            entities.add(toItemEntity(item));
+        }
+        return entities;
+    }
+}
@@ -0,0 +1,135 @@
+package co.newlabs.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+@Component
+public class PalletMetrics {
+    private static final String[] ACCOUNT_SOURCES = {"active", "warehouse"};
+    private static final String[] ACCOUNT_OUTCOMES = {"success", "not_found", "error"};
+    private static final String[] ACCOUNT_FALLBACK_RESULTS = {"stale", "unavailable"};
+
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary itemsPerPallet;
+    private final Counter maxWeightExceeded;
+    private final Counter itemNotOnPallet;
+    private final DistributionSummary writeBehindBatchSize;
+    private final Timer writeBehindFlush;
+    private final Counter palletsDrained;
+    private final Counter itemsMoved;
+    private final Map<String, Map<String, Timer>> accountCalls = new HashMap<>();
+    private final Map<String, Counter> accountFallbacks = new HashMap<>();
+
+    public PalletMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.itemsPerPallet = DistributionSummary.builder("pallet.items")
+                .description("Items on each pallet returned by a read")
+                .baseUnit("items")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.maxWeightExceeded = rejection("PalletMaxWeightException");
+        this.itemNotOnPallet = rejection("ItemNotOnPalletException");
+        this.writeBehindBatchSize = DistributionSummary.builder("items.write.behind.batch")
+                .description("Item changes committed per group commit")
+                .baseUnit("changes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.writeBehindFlush = Timer.builder("items.write.behind.flush")
+                .description("Time spent committing a group of buffered item changes")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.palletsDrained = Counter.builder("pallets.consolidation.drained")
+                .description("Pallets emptied by consolidation")
+                .register(meterRegistry);
+        this.itemsMoved = Counter.builder("pallets.consolidation.items.moved")
+                .description("Items moved to another pallet by consolidation")
+                .baseUnit("items")
+                .register(meterRegistry);
+        for (String source : ACCOUNT_SOURCES) {
+            Map<String, Timer> outcomes = new HashMap<>();
+            for (String outcome : ACCOUNT_OUTCOMES) {
+                outcomes.put(outcome, Timer.builder("accounts.request")
+                        .description("Calls to the accounts service")
+                        .tag("source", source)
+                        .tag("outcome", outcome)
+                        .register(meterRegistry));
+            }
+            accountCalls.put(source, outcomes);
+        }
+        for (String result : ACCOUNT_FALLBACK_RESULTS) {
+            accountFallbacks.put(result, Counter.builder("accounts.fallback")
+                    .description("Account lookups answered without the accounts service")
+                    .tag("result", result)
+                    .register(meterRegistry));
+        }
+    }
+
+    private Counter rejection(String exception) {
+        return Counter.builder("pallet.rejections")
+                .description("Writes rejected by pallet rules")
+                .tag("exception", exception)
+                .register(meterRegistry);
+    }
+
+    // repositories build their timers once so the hot path never goes through the registry
+    public Timer queryTimer(String repository, String query) {
+        return Timer.builder("repository.query")
+                .description("Time spent in a repository query")
+                .tag("repository", repository)
+                .tag("query", query)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // read on scrape from the owner's own counter; registered by the owner, so no meter binder has to depend on it
+    public <T> void registerCollapsedAccountLookups(T lookups, ToDoubleFunction<T> collapsedCount) {
+        FunctionCounter.builder("accounts.lookups.collapsed", lookups, collapsedCount)
+                .register(meterRegistry);
+    }
+
+    public void recordItemsPerPallet(int items) {
+        itemsPerPallet.record(items);
+    }
+
+    public void recordMaxWeightExceeded() {
+        maxWeightExceeded.increment();
+    }
+
+    public void recordItemNotOnPallet() {
+        itemNotOnPallet.increment();
+    }
+
+    public void recordWriteBehindFlush(int changes, long nanos) {
+        writeBehindBatchSize.record(changes);
+        writeBehindFlush.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPalletDrained(int items) {
+        palletsDrained.increment();
+        itemsMoved.increment(items);
+    }
+
+    // a drain that moved items but left some on the source, so the source was not emptied
+    public void recordItemsMoved(int items) {
+        itemsMoved.increment(items);
+    }
+
+    // source is active or warehouse, outcome is success, not_found or error
+    public void recordAccountCall(String source, String outcome, long nanos) {
+        accountCalls.get(source).get(outcome).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    // result is stale when an expired account was served, unavailable when nothing could be served
+    public void recordAccountFallback(String result) {
+        accountFallbacks.get(result).increment();
+    }
+}
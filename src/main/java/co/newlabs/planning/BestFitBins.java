@@ -0,0 +1,57 @@
+package co.newlabs.planning;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// bins grouped by load; the fullest bin that still has room is a floor lookup in O(log bins)
+final class BestFitBins extends Bins {
+    private final TreeMap<Double, ArrayDeque<Integer>> byLoad = new TreeMap<>();
+    private final List<Double> loads;
+
+    BestFitBins(final double[] loads, final double capacity) {
+        super(capacity);
+        this.loads = new ArrayList<>(loads.length);
+        for (int bin = 0; bin < loads.length; bin++) {
+            this.loads.add(loads[bin]);
+            index(bin, loads[bin]);
+        }
+    }
+
+    @Override
+    int find(final double weight) {
+        Map.Entry<Double, ArrayDeque<Integer>> fullest = byLoad.floorEntry(capacity - weight);
+        return fullest == null ? BinPacker.UNPLACED : fullest.getValue().peekLast();
+    }
+
+    @Override
+    void place(final int bin, final double weight) {
+        double load = loads.get(bin);
+        ArrayDeque<Integer> bins = byLoad.get(load);
+        bins.removeLastOccurrence(bin);
+        if (bins.isEmpty()) {
+            byLoad.remove(load);
+        }
+        loads.set(bin, load + weight);
+        index(bin, load + weight);
+    }
+
+    @Override
+    int open(final double weight) {
+        int bin = loads.size();
+        loads.add(weight);
+        index(bin, weight);
+        return bin;
+    }
+
+    @Override
+    int count() {
+        return loads.size();
+    }
+
+    private void index(final int bin, final double load) {
+        byLoad.computeIfAbsent(load, key -> new ArrayDeque<>()).addLast(bin);
+    }
+}
@@ -0,0 +1,127 @@
+package co.newlabs.planning;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+// first-fit and best-fit decreasing over the open bins, opening as many new bins as the rest of the items need
+public final class BinPacker {
+    public static final int UNPLACED = -1;
+    private static final int MIN_CHUNK_ITEMS = 4096;
+
+    private BinPacker() {
+    }
+
+    public static Packing pack(final double[] weights, final double[] loads, final double capacity,
+                               final PackingStrategy strategy, final int parallelThreshold) {
+        Integer[] order = heaviestFirst(weights, parallelThreshold);
+        int[] bins = new int[weights.length];
+        if (weights.length < parallelThreshold) {
+            Bins packed = strategy.bins(loads, capacity, weights.length);
+            for (Integer item : order) {
+                bins[item] = packed.add(weights[item]);
+            }
+            return new Packing(bins, packed.count());
+        }
+        return packInParallel(weights, loads, capacity, strategy, order, bins);
+    }
+
+    private static Integer[] heaviestFirst(final double[] weights, final int parallelThreshold) {
+        Integer[] order = new Integer[weights.length];
+        for (int item = 0; item < order.length; item++) {
+            order[item] = item;
+        }
+        Comparator<Integer> heaviestFirst = (left, right) -> Double.compare(weights[right], weights[left]);
+        if (weights.length < parallelThreshold) {
+            Arrays.sort(order, heaviestFirst);
+        } else {
+            Arrays.parallelSort(order, heaviestFirst);
+        }
+        return order;
+    }
+
+    // the open bins are filled in one sequential pass; the items that need new bins are split into interleaved
+    // chunks, each still heaviest first, and packed on the fork/join pool. The last bin of every chunk is the
+    // least filled, so their items are pooled and packed again to keep the extra bins down to about one.
+    private static Packing packInParallel(final double[] weights, final double[] loads, final double capacity,
+                                          final PackingStrategy strategy, final Integer[] order, final int[] bins) {
+        Bins open = strategy.bins(loads, capacity, 0);
+        int[] overflow = new int[order.length];
+        int overflowCount = 0;
+        for (Integer item : order) {
+            double weight = weights[item];
+            int bin = weight > capacity ? UNPLACED : open.find(weight);
+            if (bin != UNPLACED) {
+                open.place(bin, weight);
+            } else if (weight <= capacity) {
+                overflow[overflowCount++] = item;
+            }
+            bins[item] = bin;
+        }
+
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        int chunkCount = Math.max(1, Math.min(parallelism, overflowCount / MIN_CHUNK_ITEMS));
+        List<Chunk> chunks = new ArrayList<>(chunkCount);
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            chunks.add(new Chunk(weights, capacity, strategy, overflow, overflowCount, chunk, chunkCount));
+        }
+        ForkJoinTask.invokeAll(chunks);
+
+        int nextBin = loads.length;
+        List<Integer> pooled = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            int last = chunk.binCount - 1;
+            for (int position = 0; position < chunk.items.length; position++) {
+                int item = chunk.items[position];
+                if (chunk.bins[position] == last) {
+                    pooled.add(item);
+                } else {
+                    bins[item] = nextBin + chunk.bins[position];
+                }
+            }
+            nextBin += Math.max(0, last);
+        }
+
+        // chunks hand their items over heaviest first, but pooled items from different chunks interleave
+        pooled.sort((left, right) -> Double.compare(weights[right], weights[left]));
+        Bins repacked = strategy.bins(new double[0], capacity, pooled.size());
+        for (Integer item : pooled) {
+            bins[item] = nextBin + repacked.add(weights[item]);
+        }
+        return new Packing(bins, nextBin + repacked.count());
+    }
+
+    private static final class Chunk extends RecursiveAction {
+        private final double[] weights;
+        private final double capacity;
+        private final PackingStrategy strategy;
+        private final int[] items;
+        private int[] bins;
+        private int binCount;
+
+        private Chunk(final double[] weights, final double capacity, final PackingStrategy strategy,
+                      final int[] overflow, final int overflowCount, final int chunk, final int chunkCount) {
+            this.weights = weights;
+            this.capacity = capacity;
+            this.strategy = strategy;
+            this.items = new int[(overflowCount - chunk + chunkCount - 1) / chunkCount];
+            for (int position = 0; position < items.length; position++) {
+                items[position] = overflow[chunk + position * chunkCount];
+            }
+        }
+
+        @Override
+        protected void compute() {
+            Bins packed = strategy.bins(new double[0], capacity, items.length);
+            bins = new int[items.length];
+            for (int position = 0; position < items.length; position++) {
+                bins[position] = packed.add(weights[items[position]]);
+            }
+            binCount = packed.count();
+        }
+    }
+}
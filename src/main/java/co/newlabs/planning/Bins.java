@@ -0,0 +1,31 @@
+package co.newlabs.planning;
+
+abstract class Bins {
+    protected final double capacity;
+
+    protected Bins(final double capacity) {
+        this.capacity = capacity;
+    }
+
+    // the bin an item of this weight would go to, or UNPLACED if no open bin has room
+    abstract int find(double weight);
+
+    abstract void place(int bin, double weight);
+
+    // opens a new bin holding just this item and returns its index
+    abstract int open(double weight);
+
+    abstract int count();
+
+    int add(final double weight) {
+        if (weight > capacity) {
+            return BinPacker.UNPLACED;
+        }
+        int bin = find(weight);
+        if (bin == BinPacker.UNPLACED) {
+            return open(weight);
+        }
+        place(bin, weight);
+        return bin;
+    }
+}
@@ -0,0 +1,62 @@
+package co.newlabs.planning;
+
+import java.util.Arrays;
+
+// a min tree over bin loads finds the leftmost bin with room in O(log bins)
+final class FirstFitBins extends Bins {
+    private final double[] tree;
+    private final int leaves;
+    private int count;
+
+    FirstFitBins(final double[] loads, final double capacity, final int newBins) {
+        super(capacity);
+        int size = Math.max(1, loads.length + newBins);
+        this.leaves = Integer.highestOneBit(size) == size ? size : Integer.highestOneBit(size) << 1;
+        // bins that are not open yet never have room
+        this.tree = new double[2 * leaves];
+        Arrays.fill(tree, Double.POSITIVE_INFINITY);
+        System.arraycopy(loads, 0, tree, leaves, loads.length);
+        for (int node = leaves - 1; node > 0; node--) {
+            tree[node] = Math.min(tree[2 * node], tree[2 * node + 1]);
+        }
+        this.count = loads.length;
+    }
+
+    @Override
+    int find(final double weight) {
+        double limit = capacity - weight;
+        if (tree[1] > limit) {
+            return BinPacker.UNPLACED;
+        }
+        int node = 1;
+        while (node < leaves) {
+            node = tree[2 * node] <= limit ? 2 * node : 2 * node + 1;
+        }
+        return node - leaves;
+    }
+
+    @Override
+    void place(final int bin, final double weight) {
+        set(bin, tree[leaves + bin] + weight);
+    }
+
+    @Override
+    int open(final double weight) {
+        int bin = count++;
+        set(bin, weight);
+        return bin;
+    }
+
+    @Override
+    int count() {
+        return count;
+    }
+
+    private void set(final int bin, final double load) {
+        int node = leaves + bin;
+        tree[node] = load;
+        for (node >>= 1; node > 0; node >>= 1) {
+            tree[node] = Math.min(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package co.newlabs.planning;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class Packing {
+    // bin of each item by input position; indices past the open bins are new bins, UNPLACED items fit nowhere
+    private final int[] bins;
+    private final int binCount;
+}
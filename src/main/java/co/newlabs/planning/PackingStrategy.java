@@ -0,0 +1,20 @@
+package co.newlabs.planning;
+
+public enum PackingStrategy {
+    // heaviest item first into the first bin with room
+    FIRST_FIT {
+        @Override
+        Bins bins(final double[] loads, final double capacity, final int newBins) {
+            return new FirstFitBins(loads, capacity, newBins);
+        }
+    },
+    // heaviest item first into the bin it leaves the least room in
+    BEST_FIT {
+        @Override
+        Bins bins(final double[] loads, final double capacity, final int newBins) {
+            return new BestFitBins(loads, capacity);
+        }
+    };
+
+    abstract Bins bins(double[] loads, double capacity, int newBins);
+}
@@ -0,0 +1,20 @@
+package co.newlabs.repository.item;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+import java.util.Set;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemChangesEntity {
+    // new version of every pallet the group changed
+    private Map<Integer, Long> versions;
+    // pallets whose adds would have gone over the weight limit and were left out; their removals still applied
+    private Set<Integer> overweightPalletIds;
+}
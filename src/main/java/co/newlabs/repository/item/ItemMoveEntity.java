@@ -0,0 +1,20 @@
+package co.newlabs.repository.item;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemMoveEntity {
+    // new versions of every pallet the move touched, empty when nothing moved
+    private Map<Integer, Long> versions;
+    private int movedItems;
+    // only when no item was left on the source, including items added to it since the move was planned
+    private boolean emptied;
+}
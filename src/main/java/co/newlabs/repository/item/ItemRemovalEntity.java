@@ -0,0 +1,18 @@
+package co.newlabs.repository.item;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemRemovalEntity {
+    private List<Integer> removedItemIds;
+    // the new pallet version, only bumped when an item was removed
+    private long version;
+}
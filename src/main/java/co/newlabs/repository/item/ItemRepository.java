@@ -1,45 +1,330 @@
 package co.newlabs.repository.item;
 
-import lombok.AllArgsConstructor;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
-import org.springframework.jdbc.core.RowMapper;
+import co.newlabs.metrics.PalletMetrics;
+import co.newlabs.repository.pallet.PalletEntity;
+import co.newlabs.repository.pallet.PalletRowMapper;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 
 @Repository
-@AllArgsConstructor
 public class ItemRepository {
-    private NamedParameterJdbcTemplate template;
+    private static final String[] KEY_COLUMNS = {"itemId"};
 
-    public void saveItem(ItemEntity entity) {
-        String query = "insert into items (palletId, weight, product) values (:palletId, :weight, :product)";
+    private final NamedParameterJdbcTemplate template;
+    private final NamedParameterJdbcTemplate streamingTemplate;
+    private final Timer saveItemsWithinWeightTimer;
+    private final Timer applyItemChangesTimer;
+    private final Timer removeItemTimer;
+    private final Timer removeItemsFromPalletTimer;
+    private final Timer moveItemsTimer;
+    private final Timer getItemsByPalletIdTimer;
+    private final Timer streamItemsByPalletIdTimer;
+    private final Timer getTotalWeightByPalletIdTimer;
+
+    public ItemRepository(NamedParameterJdbcTemplate template, PalletMetrics metrics,
+                          @Value("${items.stream.fetch-size:500}") int streamFetchSize) {
+        this.template = template;
+        // a separate template so only streamed reads use the driver fetch size
+        JdbcTemplate streamingJdbcTemplate = new JdbcTemplate(template.getJdbcTemplate().getDataSource());
+        streamingJdbcTemplate.setFetchSize(streamFetchSize);
+        this.streamingTemplate = new NamedParameterJdbcTemplate(streamingJdbcTemplate);
+        this.saveItemsWithinWeightTimer = metrics.queryTimer("items", "saveItemsWithinWeight");
+        this.applyItemChangesTimer = metrics.queryTimer("items", "applyItemChanges");
+        this.removeItemTimer = metrics.queryTimer("items", "removeItem");
+        this.removeItemsFromPalletTimer = metrics.queryTimer("items", "removeItemsFromPallet");
+        this.moveItemsTimer = metrics.queryTimer("items", "moveItems");
+        this.getItemsByPalletIdTimer = metrics.queryTimer("items", "getItemsByPalletId");
+        this.streamItemsByPalletIdTimer = metrics.queryTimer("items", "streamItemsByPalletId");
+        this.getTotalWeightByPalletIdTimer = metrics.queryTimer("items", "getTotalWeightByPalletId");
+    }
+
+    // the new pallet version once the items are in, with their generated ids set on the entities;
+    // empty when the items would take the pallet over maxWeight
+    @Transactional
+    public OptionalLong saveItemsWithinWeight(int palletId, List<ItemEntity> entities, double maxWeight) {
+        double addedWeight = 0d;
+        for (ItemEntity entity : entities) {
+            addedWeight += entity.getWeight();
+        }
+
+        double weight = addedWeight;
+        return saveItemsWithinWeightTimer.record(() -> {
+            // the row lock serializes writers per pallet, so the summed weight holds until the insert
+            lockPallet(palletId);
+            if (getTotalWeightByPalletId(palletId) + weight > maxWeight) {
+                return OptionalLong.empty();
+            }
+            entities.forEach(entity -> entity.setPalletId(palletId));
+            insertBatch(entities);
+            return OptionalLong.of(bumpVersion(palletId));
+        });
+    }
+
+    // applies a group of buffered adds and removes in one transaction. Every pallet is locked and rechecked like
+    // saveItemsWithinWeight; adds that would now take a pallet over maxWeight are left out, while removals only ever
+    // lower the weight and always apply.
+    @Transactional
+    public ItemChangesEntity applyItemChanges(List<ItemEntity> added, List<ItemEntity> removed, double maxWeight) {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return ItemChangesEntity.builder()
+                    .versions(Collections.emptyMap())
+                    .overweightPalletIds(Collections.emptySet())
+                    .build();
+        }
+        // the pallet guard keeps a removal from deleting an item that has since moved to another pallet
+        String deleteQuery = "delete from items where itemId = :id and palletId = :palletId";
+        Set<Integer> palletIds = new TreeSet<>();
+        Map<Integer, Double> weightChanges = new HashMap<>();
+        for (ItemEntity entity : removed) {
+            palletIds.add(entity.getPalletId());
+            weightChanges.merge(entity.getPalletId(), -entity.getWeight(), Double::sum);
+        }
+        for (ItemEntity entity : added) {
+            palletIds.add(entity.getPalletId());
+            weightChanges.merge(entity.getPalletId(), entity.getWeight(), Double::sum);
+        }
+
+        return applyItemChangesTimer.record(() -> {
+            // pallets are locked in id order so concurrent group commits and direct writes cannot deadlock on each other
+            palletIds.forEach(this::lockPallet);
+            Map<Integer, Double> weights = getTotalWeightsByPalletIds(palletIds);
+            Set<Integer> overweight = new TreeSet<>();
+            for (Integer palletId : palletIds) {
+                double change = weightChanges.get(palletId);
+                if (change > 0 && weights.getOrDefault(palletId, 0d) + change > maxWeight) {
+                    overweight.add(palletId);
+                }
+            }
+
+            Set<Integer> changed = new TreeSet<>();
+            List<ItemEntity> inserts = new ArrayList<>();
+            for (ItemEntity entity : added) {
+                if (!overweight.contains(entity.getPalletId())) {
+                    inserts.add(entity);
+                    changed.add(entity.getPalletId());
+                }
+            }
+            List<SqlParameterSource> deletes = new ArrayList<>();
+            for (ItemEntity entity : removed) {
+                deletes.add(new MapSqlParameterSource()
+                        .addValue("id", entity.getItemId())
+                        .addValue("palletId", entity.getPalletId()));
+                changed.add(entity.getPalletId());
+            }
+            if (!inserts.isEmpty()) {
+                insertBatch(inserts);
+            }
+            if (!deletes.isEmpty()) {
+                template.batchUpdate(deleteQuery, deletes.toArray(new SqlParameterSource[0]));
+            }
+            Map<Integer, Long> versions = new HashMap<>();
+            for (Integer palletId : changed) {
+                versions.put(palletId, bumpVersion(palletId));
+            }
+            return ItemChangesEntity.builder()
+                    .versions(versions)
+                    .overweightPalletIds(overweight)
+                    .build();
+        });
+    }
+
+    private Map<Integer, Double> getTotalWeightsByPalletIds(Collection<Integer> palletIds) {
+        String query = "select palletId, coalesce(sum(weight), 0) from items where palletId in (:palletIds) group by palletId";
         Map<String, Object> params = new HashMap<>();
-        params.put("palletId", entity.getPalletId());
-        params.put("weight", entity.getWeight());
-        params.put("product", entity.getProduct());
+        params.put("palletIds", palletIds);
+
+        Map<Integer, Double> weights = new HashMap<>();
+        template.query(query, params, (RowCallbackHandler) rs -> weights.put(rs.getInt(1), rs.getDouble(2)));
+        return weights;
+    }
 
-        template.update(query, params);
+    // NamedParameterJdbcTemplate has no batch update with a KeyHolder, so the keys are read off the statement
+    private void insertBatch(List<ItemEntity> entities) {
+        String query = "insert into items (palletId, weight, product) values (?, ?, ?)";
+        template.getJdbcTemplate().execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(query, KEY_COLUMNS)) {
+                for (ItemEntity entity : entities) {
+                    statement.setInt(1, entity.getPalletId());
+                    statement.setDouble(2, entity.getWeight());
+                    statement.setString(3, entity.getProduct());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (int i = 0; i < entities.size() && keys.next(); i++) {
+                        entities.get(i).setItemId(keys.getInt(1));
+                    }
+                }
+            }
+            return null;
+        });
     }
 
-    public void removeItem(int itemId) {
-        String query = "delete from items where itemId = :id";
+    // empty when the item is not on the pallet, in which case the pallet version is left alone
+    @Transactional
+    public OptionalLong removeItem(int palletId, int itemId) {
+        String query = "delete from items where itemId = :id and palletId = :palletId";
         Map<String, Object> params = new HashMap<>();
         params.put("id", itemId);
+        params.put("palletId", palletId);
+
+        return removeItemTimer.record(() -> template.update(query, params) == 0
+                ? OptionalLong.empty()
+                : OptionalLong.of(bumpVersion(palletId)));
+    }
+
+    // the items that were on the pallet are removed; the rest of the ids are ignored and leave the version alone
+    @Transactional
+    public ItemRemovalEntity removeItemsFromPallet(int palletId, Collection<Integer> itemIds) {
+        if (itemIds.isEmpty()) {
+            return ItemRemovalEntity.builder()
+                    .removedItemIds(Collections.emptyList())
+                    .build();
+        }
+        String selectQuery = "select itemId from items where palletId = :palletId and itemId in (:itemIds)";
+        String deleteQuery = "delete from items where palletId = :palletId and itemId in (:itemIds)";
+        Map<String, Object> params = new HashMap<>();
+        params.put("palletId", palletId);
+        params.put("itemIds", itemIds);
 
-        template.update(query, params);
+        return removeItemsFromPalletTimer.record(() -> {
+            // locked like the other writes, so no item can move or go between the select and the delete
+            PalletEntity pallet = lockPallet(palletId);
+            List<Integer> onPallet = template.queryForList(selectQuery, params, Integer.class);
+            if (onPallet.isEmpty()) {
+                return ItemRemovalEntity.builder()
+                        .removedItemIds(onPallet)
+                        .version(pallet.getVersion())
+                        .build();
+            }
+            template.update(deleteQuery, params);
+            return ItemRemovalEntity.builder()
+                    .removedItemIds(onPallet)
+                    .version(bumpVersion(palletId))
+                    .build();
+        });
+    }
+
+    // moves items off the source in one transaction; nothing moves and the versions are empty when a target would go
+    // over maxWeight. Items removed or moved since they were read are skipped and not counted as moved.
+    @Transactional
+    public ItemMoveEntity moveItems(int sourcePalletId, Map<Integer, List<ItemEntity>> itemsByTarget, double maxWeight) {
+        String query = "update items set palletId = :target where itemId = :id and palletId = :source";
+        List<SqlParameterSource> batch = new ArrayList<>();
+        Map<Integer, Double> incoming = new HashMap<>();
+        Set<Integer> palletIds = new TreeSet<>(itemsByTarget.keySet());
+        palletIds.add(sourcePalletId);
+        itemsByTarget.forEach((target, items) -> {
+            for (ItemEntity item : items) {
+                batch.add(new MapSqlParameterSource()
+                        .addValue("target", target)
+                        .addValue("id", item.getItemId())
+                        .addValue("source", sourcePalletId));
+                incoming.merge(target, item.getWeight(), Double::sum);
+            }
+        });
+
+        return moveItemsTimer.record(() -> {
+            // locked in id order like the other multi-pallet writes, then checked against what is on the targets now
+            palletIds.forEach(this::lockPallet);
+            for (Map.Entry<Integer, Double> target : incoming.entrySet()) {
+                if (getTotalWeightByPalletId(target.getKey()) + target.getValue() > maxWeight) {
+                    return ItemMoveEntity.builder()
+                            .versions(Collections.emptyMap())
+                            .build();
+                }
+            }
+            int movedItems = 0;
+            for (int count : template.batchUpdate(query, batch.toArray(new SqlParameterSource[0]))) {
+                if (count > 0) {
+                    movedItems += count;
+                }
+            }
+            Map<Integer, Long> versions = new HashMap<>();
+            for (Integer palletId : palletIds) {
+                versions.put(palletId, bumpVersion(palletId));
+            }
+            return ItemMoveEntity.builder()
+                    .versions(versions)
+                    .movedItems(movedItems)
+                    .emptied(countItemsByPalletId(sourcePalletId) == 0)
+                    .build();
+        });
     }
 
     public List<ItemEntity> getItemsByPalletId(int palletId) {
-        String query = "select * from items where palletId = :palletId";
+        String query = "select " + ItemRowMapper.COLUMNS + " from items where palletId = :palletId";
         Map<String, Object> params = new HashMap<>();
         params.put("palletId", palletId);
 
-        RowMapper<ItemEntity> rowMapper = new BeanPropertyRowMapper<>(ItemEntity.class);
+        return getItemsByPalletIdTimer.record(() -> template.query(query, params, ItemRowMapper.INSTANCE));
+    }
+
+    // hands each row to the consumer as it is fetched instead of collecting the pallet into a list;
+    // read only transaction so drivers that need it keep a cursor open
+    @Transactional(readOnly = true)
+    public void streamItemsByPalletId(int palletId, Consumer<ItemEntity> consumer) {
+        String query = "select " + ItemRowMapper.COLUMNS + " from items where palletId = :palletId";
+        Map<String, Object> params = new HashMap<>();
+        params.put("palletId", palletId);
+
+        streamItemsByPalletIdTimer.record(() -> streamingTemplate.query(query, params,
+                (RowCallbackHandler) rs -> consumer.accept(ItemRowMapper.INSTANCE.mapRow(rs, rs.getRow()))));
+    }
+
+    public double getTotalWeightByPalletId(int palletId) {
+        String query = "select coalesce(sum(weight), 0) from items where palletId = :palletId";
+        Map<String, Object> params = new HashMap<>();
+        params.put("palletId", palletId);
+
+        return getTotalWeightByPalletIdTimer.record(() -> template.queryForObject(query, params, Double.class));
+    }
+
+    private int countItemsByPalletId(int palletId) {
+        String query = "select count(*) from items where palletId = :palletId";
+        Map<String, Object> params = new HashMap<>();
+        params.put("palletId", palletId);
+
+        return template.queryForObject(query, params, Integer.class);
+    }
+
+    // every change to a pallet's items bumps its version in the same transaction
+    private long bumpVersion(int palletId) {
+        String updateQuery = "update pallets set version = version + 1 where palletId = :palletId";
+        String selectQuery = "select version from pallets where palletId = :palletId";
+        Map<String, Object> params = new HashMap<>();
+        params.put("palletId", palletId);
+
+        template.update(updateQuery, params);
+        return template.queryForObject(selectQuery, params, Long.class);
+    }
+
+    private PalletEntity lockPallet(int palletId) {
+        String query = "select " + PalletRowMapper.COLUMNS + " from pallets where palletId = :palletId for update";
+        Map<String, Object> params = new HashMap<>();
+        params.put("palletId", palletId);
 
-        return template.query(query, params, rowMapper);
+        return template.queryForObject(query, params, PalletRowMapper.INSTANCE);
     }
 }
@@ -0,0 +1,24 @@
+package co.newlabs.repository.item;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public final class ItemRowMapper implements RowMapper<ItemEntity> {
+    public static final String COLUMNS = "itemId, palletId, weight, product";
+    public static final ItemRowMapper INSTANCE = new ItemRowMapper();
+
+    private ItemRowMapper() {
+    }
+
+    @Override
+    public ItemEntity mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return ItemEntity.builder()
+                .itemId(rs.getInt(1))
+                .palletId(rs.getInt(2))
+                .weight(rs.getDouble(3))
+                .product(rs.getString(4))
+                .build();
+    }
+}
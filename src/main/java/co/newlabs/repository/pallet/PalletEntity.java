@@ -1,10 +1,13 @@
 package co.newlabs.repository.pallet;
 
+import co.newlabs.repository.item.ItemEntity;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.List;
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -12,4 +15,6 @@ import lombok.NoArgsConstructor;
 public class PalletEntity {
     private int palletId;
     private int accountId;
+    private long version;
+    private List<ItemEntity> items;
 }
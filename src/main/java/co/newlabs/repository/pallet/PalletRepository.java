@@ -1,25 +1,90 @@
 package co.newlabs.repository.pallet;
 
-import lombok.AllArgsConstructor;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
-import org.springframework.jdbc.core.RowMapper;
+import co.newlabs.metrics.PalletMetrics;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Repository
-@AllArgsConstructor
 public class PalletRepository {
     private NamedParameterJdbcTemplate template;
+    private final Timer getPalletByIdTimer;
+    private final Timer getPalletsWithItemsTimer;
+    private final Timer getVersionTimer;
+    private final Timer getPalletWeightsTimer;
+    private final Timer getAccountsWithUnderFilledPalletsTimer;
+
+    public PalletRepository(NamedParameterJdbcTemplate template, PalletMetrics metrics) {
+        this.template = template;
+        this.getPalletByIdTimer = metrics.queryTimer("pallets", "getPalletById");
+        this.getPalletsWithItemsTimer = metrics.queryTimer("pallets", "getPalletsWithItems");
+        this.getVersionTimer = metrics.queryTimer("pallets", "getVersion");
+        this.getPalletWeightsTimer = metrics.queryTimer("pallets", "getPalletWeights");
+        this.getAccountsWithUnderFilledPalletsTimer = metrics.queryTimer("pallets", "getAccountsWithUnderFilledPallets");
+    }
 
     public PalletEntity getPalletById(final int id) {
-        String query = "select * from pallets where palletId = :id";
+        String query = "select " + PalletRowMapper.COLUMNS + " from pallets where palletId = :id";
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", id);
+
+        return getPalletByIdTimer.record(() -> template.queryForObject(query, params, PalletRowMapper.INSTANCE));
+    }
+
+    public List<PalletEntity> getPalletsWithItems(final Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String query = "select " + PalletWithItemsExtractor.COLUMNS + " " +
+                "from pallets p left join items i on i.palletId = p.palletId " +
+                "where p.palletId in (:ids)";
+        Map<String, Object> params = new HashMap<>();
+        params.put("ids", ids);
+
+        return getPalletsWithItemsTimer.record(() -> template.query(query, params, PalletWithItemsExtractor.INSTANCE));
+    }
+
+    // current weight of the account's pallets, limited to ids when given, in one aggregate query
+    public List<PalletWeightEntity> getPalletWeights(final int accountId, final Collection<Integer> ids) {
+        if (ids != null && ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String query = "select " + PalletWeightRowMapper.COLUMNS + " " +
+                "from pallets p left join items i on i.palletId = p.palletId " +
+                "where p.accountId = :accountId" + (ids != null ? " and p.palletId in (:ids) " : " ") +
+                "group by p.palletId, p.accountId order by p.palletId";
+        Map<String, Object> params = new HashMap<>();
+        params.put("accountId", accountId);
+        params.put("ids", ids);
+
+        return getPalletWeightsTimer.record(() -> template.query(query, params, PalletWeightRowMapper.INSTANCE));
+    }
+
+    // accounts with a loaded pallet under the weight and at least one other loaded pallet it could go onto
+    public List<Integer> getAccountsWithUnderFilledPallets(final double underFilledWeight) {
+        String query = "select accountId from (" +
+                "select " + PalletWeightRowMapper.COLUMNS + " as weight " +
+                "from pallets p left join items i on i.palletId = p.palletId " +
+                "group by p.palletId, p.accountId) w " +
+                "where weight > 0 group by accountId " +
+                "having count(*) > 1 and min(weight) < :underFilledWeight order by accountId";
+        Map<String, Object> params = new HashMap<>();
+        params.put("underFilledWeight", underFilledWeight);
+
+        return getAccountsWithUnderFilledPalletsTimer.record(() -> template.queryForList(query, params, Integer.class));
+    }
+
+    public long getVersion(final int id) {
+        String query = "select version from pallets where palletId = :id";
         Map<String, Object> params = new HashMap<>();
         params.put("id", id);
 
-        RowMapper<PalletEntity> rowMapper = new BeanPropertyRowMapper<>(PalletEntity.class);
-        return template.queryForObject(query, params, rowMapper);
+        return getVersionTimer.record(() -> template.queryForObject(query, params, Long.class));
     }
 }
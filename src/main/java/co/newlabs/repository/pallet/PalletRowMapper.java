@@ -0,0 +1,23 @@
+package co.newlabs.repository.pallet;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public final class PalletRowMapper implements RowMapper<PalletEntity> {
+    public static final String COLUMNS = "palletId, accountId, version";
+    public static final PalletRowMapper INSTANCE = new PalletRowMapper();
+
+    private PalletRowMapper() {
+    }
+
+    @Override
+    public PalletEntity mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return PalletEntity.builder()
+                .palletId(rs.getInt(1))
+                .accountId(rs.getInt(2))
+                .version(rs.getLong(3))
+                .build();
+    }
+}
@@ -0,0 +1,16 @@
+package co.newlabs.repository.pallet;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PalletWeightEntity {
+    private int palletId;
+    private int accountId;
+    private double weight;
+}
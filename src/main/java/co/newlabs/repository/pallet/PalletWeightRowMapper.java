@@ -0,0 +1,23 @@
+package co.newlabs.repository.pallet;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public final class PalletWeightRowMapper implements RowMapper<PalletWeightEntity> {
+    public static final String COLUMNS = "p.palletId, p.accountId, coalesce(sum(i.weight), 0)";
+    public static final PalletWeightRowMapper INSTANCE = new PalletWeightRowMapper();
+
+    private PalletWeightRowMapper() {
+    }
+
+    @Override
+    public PalletWeightEntity mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return PalletWeightEntity.builder()
+                .palletId(rs.getInt(1))
+                .accountId(rs.getInt(2))
+                .weight(rs.getDouble(3))
+                .build();
+    }
+}
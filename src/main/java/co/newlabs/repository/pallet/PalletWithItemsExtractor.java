@@ -0,0 +1,48 @@
+package co.newlabs.repository.pallet;
+
+import co.newlabs.repository.item.ItemEntity;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class PalletWithItemsExtractor implements ResultSetExtractor<List<PalletEntity>> {
+    public static final String COLUMNS = "p.palletId, p.accountId, p.version, i.itemId, i.palletId, i.weight, i.product";
+    public static final PalletWithItemsExtractor INSTANCE = new PalletWithItemsExtractor();
+
+    private PalletWithItemsExtractor() {
+    }
+
+    @Override
+    public List<PalletEntity> extractData(ResultSet rs) throws SQLException {
+        Map<Integer, PalletEntity> pallets = new LinkedHashMap<>();
+        while (rs.next()) {
+            int palletId = rs.getInt(1);
+            PalletEntity pallet = pallets.get(palletId);
+            if (pallet == null) {
+                pallet = PalletEntity.builder()
+                        .palletId(palletId)
+                        .accountId(rs.getInt(2))
+                        .version(rs.getLong(3))
+                        .items(new ArrayList<>())
+                        .build();
+                pallets.put(palletId, pallet);
+            }
+            // a pallet without items still yields one row, with every item column null
+            if (rs.getObject(5) == null) {
+                continue;
+            }
+            pallet.getItems().add(ItemEntity.builder()
+                    .itemId(rs.getInt(4))
+                    .palletId(palletId)
+                    .weight(rs.getDouble(6))
+                    .product(rs.getString(7))
+                    .build());
+        }
+        return new ArrayList<>(pallets.values());
+    }
+}
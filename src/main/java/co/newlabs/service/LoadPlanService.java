@@ -0,0 +1,84 @@
+package co.newlabs.service;
+
+import co.newlabs.dto.ItemDTO;
+import co.newlabs.dto.LoadPlanDTO;
+import co.newlabs.dto.LoadPlanRequestDTO;
+import co.newlabs.dto.PalletDTO;
+import co.newlabs.dto.PlannedPalletDTO;
+import co.newlabs.planning.BinPacker;
+import co.newlabs.planning.PackingStrategy;
+import co.newlabs.planning.Packing;
+import co.newlabs.repository.pallet.PalletRepository;
+import co.newlabs.repository.pallet.PalletWeightEntity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+@Service
+public class LoadPlanService {
+    private final PalletRepository palletRepository;
+    private final PackingStrategy defaultStrategy;
+    private final int parallelThreshold;
+
+    public LoadPlanService(PalletRepository palletRepository,
+                           @Value("${pallets.plan.strategy:BEST_FIT}") PackingStrategy defaultStrategy,
+                           @Value("${pallets.plan.parallel-threshold:50000}") int parallelThreshold) {
+        this.palletRepository = palletRepository;
+        this.defaultStrategy = defaultStrategy;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    // a plan writes nothing; the add endpoints still enforce MAX_WEIGHT when it is carried out
+    public LoadPlanDTO planLoad(final LoadPlanRequestDTO request) {
+        List<PalletWeightEntity> candidates = palletRepository.getPalletWeights(request.getAccountId(), request.getPalletIds());
+        List<ItemDTO> items = request.getItems() != null ? request.getItems() : Collections.emptyList();
+        PackingStrategy strategy = request.getStrategy() != null ? request.getStrategy() : defaultStrategy;
+
+        double[] loads = new double[candidates.size()];
+        for (int bin = 0; bin < loads.length; bin++) {
+            loads[bin] = candidates.get(bin).getWeight();
+        }
+        double[] weights = new double[items.size()];
+        for (int item = 0; item < weights.length; item++) {
+            weights[item] = items.get(item).getWeight();
+        }
+        Packing packing = BinPacker.pack(weights, loads, PalletDTO.MAX_WEIGHT, strategy, parallelThreshold);
+
+        PlannedPalletDTO[] planned = new PlannedPalletDTO[packing.getBinCount()];
+        List<ItemDTO> unplaced = new ArrayList<>();
+        for (int item = 0; item < weights.length; item++) {
+            int bin = packing.getBins()[item];
+            if (bin == BinPacker.UNPLACED) {
+                unplaced.add(items.get(item));
+                continue;
+            }
+            if (planned[bin] == null) {
+                boolean existing = bin < loads.length;
+                planned[bin] = PlannedPalletDTO.builder()
+                        .palletId(existing ? candidates.get(bin).getPalletId() : 0)
+                        .items(new ArrayList<>())
+                        .currentWeight(existing ? loads[bin] : 0d)
+                        .build();
+            }
+            planned[bin].getItems().add(items.get(item));
+            planned[bin].setCurrentWeight(planned[bin].getCurrentWeight() + weights[item]);
+        }
+
+        // only pallets that receive items are part of the plan
+        List<PlannedPalletDTO> pallets = new ArrayList<>();
+        for (PlannedPalletDTO pallet : planned) {
+            if (pallet != null) {
+                pallets.add(pallet);
+            }
+        }
+        return LoadPlanDTO.builder()
+                .accountId(request.getAccountId())
+                .pallets(pallets)
+                .newPallets(packing.getBinCount() - loads.length)
+                .unplaced(unplaced)
+                .build();
+    }
+}
@@ -1,22 +1,42 @@
 package co.newlabs.service;
 
+import co.newlabs.cache.PalletCache;
 import co.newlabs.client.account.AccountClient;
 import co.newlabs.client.account.AccountDTO;
 import co.newlabs.dto.ItemDTO;
+import co.newlabs.dto.ItemRemovalDTO;
 import co.newlabs.dto.PalletDTO;
+import co.newlabs.dto.PalletView;
 import co.newlabs.exception.AccountAccessException;
 import co.newlabs.exception.ItemNotOnPalletException;
 import co.newlabs.exception.PalletMaxWeightException;
+import co.newlabs.mapper.PalletMapper;
+import co.newlabs.metrics.PalletMetrics;
 import co.newlabs.repository.item.ItemEntity;
+import co.newlabs.repository.item.ItemRemovalEntity;
 import co.newlabs.repository.item.ItemRepository;
 import co.newlabs.repository.pallet.PalletEntity;
 import co.newlabs.repository.pallet.PalletRepository;
+import co.newlabs.writebehind.Durability;
+import co.newlabs.writebehind.ItemWriteBuffer;
+import co.newlabs.writebehind.PendingWrite;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import ma.glasnost.orika.MapperFacade;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -25,50 +45,347 @@ public class PalletService {
     private PalletRepository palletRepository;
     private ItemRepository itemRepository;
     private AccountClient accountClient;
-    private MapperFacade mapper;
+    private PalletMapper mapper;
+    private PalletMetrics metrics;
+    private ItemWriteBuffer writeBuffer;
+    private PalletCache palletCache;
+
+    // every add and remove bumps the version, so readers can tell an unchanged pallet apart without loading it;
+    // a cached pallet answers with the version it was stored under, so only a miss queries it
+    public long getPalletVersion(final int id) {
+        writeBuffer.awaitPallet(id);
+        OptionalLong cached = palletCache.getVersion(id);
+        if (cached.isPresent()) {
+            return cached.getAsLong();
+        }
+        return palletRepository.getVersion(id);
+    }
 
     public PalletDTO getPalletById(final int id) {
+        return getPalletById(id, PalletView.FULL);
+    }
+
+    // only full pallets are cached; a narrower view is cut from a cached pallet or loaded with just the reads it needs
+    public PalletDTO getPalletById(final int id, final PalletView view) {
+        writeBuffer.awaitPallet(id);
+        PalletDTO cached = palletCache.get(id);
+        if (cached != null) {
+            return project(cached, view);
+        }
+        if (view == PalletView.FULL) {
+            return palletCache.load(id, () -> loadPallet(id));
+        }
+        return loadPallet(id, view);
+    }
+
+    private PalletDTO loadPallet(final int id, final PalletView view) {
+        PalletEntity pEntity = palletRepository.getPalletById(id);
+        CompletableFuture<String> destination = view.includesDestination() ? resolveDestinationAsync(pEntity.getAccountId()) : null;
+
+        PalletDTO pallet;
+        if (view.includesItems()) {
+            pEntity.setItems(itemRepository.getItemsByPalletId(id));
+            pallet = toPalletDTO(pEntity);
+        } else {
+            pallet = mapper.toPalletDTO(pEntity);
+            pallet.setCurrentWeight(itemRepository.getTotalWeightByPalletId(id));
+        }
+        if (destination != null) {
+            pallet.setDestination(await(destination));
+        }
+        return pallet;
+    }
+
+    private static PalletDTO project(final PalletDTO pallet, final PalletView view) {
+        if (!view.includesItems()) {
+            pallet.setItems(null);
+        }
+        if (!view.includesDestination()) {
+            pallet.setDestination(null);
+        }
+        return pallet;
+    }
+
+    // reads the pallet from the database and writes it through to the cache under the version it was read at,
+    // unless the accounts service was down and the next read should try the destination again
+    private PalletDTO loadPallet(final int id) {
+        PalletEntity pEntity = palletRepository.getPalletById(id);
+        // the account lookup only needs the pallet row, so it runs while the items are read
+        CompletableFuture<String> destination = resolveDestinationAsync(pEntity.getAccountId());
+        pEntity.setItems(itemRepository.getItemsByPalletId(id));
+
+        PalletDTO pallet = toPalletDTO(pEntity);
+        pallet.setDestination(await(destination));
+        if (!pallet.isDestinationUnresolved()) {
+            palletCache.put(id, pEntity.getVersion(), pallet);
+        }
+        return pallet;
+    }
+
+    // the pallet row and destination of a streamed pallet are resolved before its response starts,
+    // so lookup failures still get an error status
+    public PalletDTO getPalletHeaderById(final int id) {
+        writeBuffer.awaitPallet(id);
         PalletEntity pEntity = palletRepository.getPalletById(id);
-        List<ItemEntity> itemList = itemRepository.getItemsByPalletId(id);
+        PalletDTO pallet = mapper.toPalletDTO(pEntity);
+        pallet.setDestination(await(resolveDestinationAsync(pEntity.getAccountId())));
+        return pallet;
+    }
 
-        PalletDTO pallet = mapper.map(pEntity, PalletDTO.class);
-        pallet.setItems(mapper.mapAsList(itemList, ItemDTO.class));
+    // hands the items to the consumer one by one as they are read, so they are never held in memory together
+    public void streamItemsByPalletId(final int id, final Consumer<ItemDTO> consumer) {
+        int[] itemCount = {0};
+        itemRepository.streamItemsByPalletId(id, item -> {
+            consumer.accept(mapper.toItemDTO(item));
+            itemCount[0]++;
+        });
+        metrics.recordItemsPerPallet(itemCount[0]);
+    }
+
+    public List<PalletDTO> getPalletsByIds(final Collection<Integer> ids) {
+        ids.forEach(writeBuffer::awaitPallet);
+        List<PalletEntity> entities = palletRepository.getPalletsWithItems(ids);
+
+        Map<Integer, CompletableFuture<String>> destinations = new HashMap<>();
+        for (PalletEntity entity : entities) {
+            destinations.computeIfAbsent(entity.getAccountId(), this::resolveDestinationAsync);
+        }
+
+        List<PalletDTO> pallets = new ArrayList<>(entities.size());
+        for (PalletEntity entity : entities) {
+            PalletDTO pallet = toPalletDTO(entity);
+            pallet.setDestination(await(destinations.get(entity.getAccountId())));
+            pallets.add(pallet);
+        }
+        return pallets;
+    }
+
+    private PalletDTO toPalletDTO(final PalletEntity pEntity) {
+        PalletDTO pallet = mapper.toPalletDTO(pEntity);
+        pallet.setItems(mapper.toItemDTOs(pEntity.getItems()));
         double accumulator = 0d;
         for (ItemDTO item: pallet.getItems()) {
             accumulator += item.getWeight();
         }
         pallet.setCurrentWeight(accumulator);
+        metrics.recordItemsPerPallet(pallet.getItems().size());
+        return pallet;
+    }
+
+    private CompletableFuture<String> resolveDestinationAsync(final int accountId) {
+        return accountClient.getAccountDetailsByIdAsync(accountId)
+                .handle((account, ex) -> {
+                    if (ex == null) {
+                        return account.getMailingAddress();
+                    }
+                    Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                    if (cause instanceof AccountAccessException) {
+                        log.warn("Unable to access account information.");
+                        return PalletDTO.UNRESOLVED_DESTINATION;
+                    }
+                    throw new CompletionException(cause);
+                });
+    }
+
+    private static <T> T await(final CompletableFuture<T> future) {
         try {
-            AccountDTO account = accountClient.getAccountDetailsById(pallet.getAccountId());
-            pallet.setDestination(account.getMailingAddress());
-        } catch (AccountAccessException ex) {
-            log.warn("Unable to access account information.");
-            pallet.setDestination("");
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    public PalletDTO addItemToPallet(final ItemDTO item, final int palletId) {
+        return addItemToPallet(item, palletId, null);
+    }
+
+    public PalletDTO addItemToPallet(final ItemDTO item, final int palletId, final Durability durability) {
+        ItemEntity entity = mapper.toItemEntity(item);
+        entity.setPalletId(palletId);
+        if (writeBuffer.isEnabled()) {
+            PendingWrite write = writeBuffer.add(entity, PalletDTO.MAX_WEIGHT);
+            if (!write.isAccepted()) {
+                metrics.recordMaxWeightExceeded();
+                throw new PalletMaxWeightException(weightOf(write.getPallet().getItems()), item.getWeight());
+            }
+            return acknowledge(write, false, durability);
+        }
+        List<ItemEntity> entities = Collections.singletonList(entity);
+        OptionalLong version = itemRepository.saveItemsWithinWeight(palletId, entities, PalletDTO.MAX_WEIGHT);
+        if (!version.isPresent()) {
+            metrics.recordMaxWeightExceeded();
+            throw new PalletMaxWeightException(itemRepository.getTotalWeightByPalletId(palletId), item.getWeight());
+        }
+        return added(palletId, version.getAsLong(), entities);
+    }
+
+    // with write-behind on, bulk adds go through the buffer too, so its pallet state sees every change to the pallet
+    public PalletDTO addItemsToPallet(final List<ItemDTO> items, final int palletId) {
+        List<ItemEntity> entities = mapper.toItemEntities(items);
+        entities.forEach(entity -> entity.setPalletId(palletId));
+        if (writeBuffer.isEnabled()) {
+            PendingWrite write = writeBuffer.addAll(palletId, entities, PalletDTO.MAX_WEIGHT);
+            if (!write.isAccepted()) {
+                metrics.recordMaxWeightExceeded();
+                throw new PalletMaxWeightException(weightOf(write.getPallet().getItems()), weightOf(entities));
+            }
+            return acknowledge(write, false, null);
+        }
+        OptionalLong version = itemRepository.saveItemsWithinWeight(palletId, entities, PalletDTO.MAX_WEIGHT);
+        if (!version.isPresent()) {
+            double itemsWeight = items.stream().mapToDouble(ItemDTO::getWeight).sum();
+            metrics.recordMaxWeightExceeded();
+            throw new PalletMaxWeightException(itemRepository.getTotalWeightByPalletId(palletId), itemsWeight);
+        }
+        return added(palletId, version.getAsLong(), entities);
+    }
+
+    public PalletDTO removeItemFromPallet(final int itemId, final int palletId) {
+        return removeItemFromPallet(itemId, palletId, null);
+    }
+
+    public PalletDTO removeItemFromPallet(final int itemId, final int palletId, final Durability durability) {
+        if (writeBuffer.isEnabled()) {
+            PendingWrite write = writeBuffer.remove(palletId, itemId);
+            if (!write.isAccepted()) {
+                metrics.recordItemNotOnPallet();
+                throw new ItemNotOnPalletException(itemId);
+            }
+            return acknowledge(write, true, durability);
+        }
+        // the delete is the membership check, so a rejected removal never reads the pallet or touches the accounts service
+        OptionalLong version = itemRepository.removeItem(palletId, itemId);
+        if (!version.isPresent()) {
+            metrics.recordItemNotOnPallet();
+            throw new ItemNotOnPalletException(itemId);
+        }
+        PalletDTO pallet = palletCache.update(palletId, version.getAsLong(), cached -> withoutItem(cached, itemId));
+        if (pallet != null) {
+            return pallet;
+        }
+        // not cached as it was before the delete, so the pallet is read back, still without an account call
+        return written(palletRepository.getPalletsWithItems(Collections.singleton(palletId)).get(0));
+    }
+
+    // like a removal, the response is derived from the cached pallet and only a cache miss reads the pallet back
+    private PalletDTO added(final int palletId, final long version, final List<ItemEntity> entities) {
+        List<ItemDTO> items = mapper.toItemDTOs(entities);
+        PalletDTO pallet = palletCache.update(palletId, version, cached -> withItems(cached, items));
+        if (pallet != null) {
+            return pallet;
+        }
+        return written(palletRepository.getPalletsWithItems(Collections.singleton(palletId)).get(0));
+    }
+
+    private static PalletDTO withItems(final PalletDTO pallet, final List<ItemDTO> items) {
+        pallet.getItems().addAll(items);
+        return withCurrentWeight(pallet);
+    }
+
+    private static PalletDTO withoutItem(final PalletDTO pallet, final int itemId) {
+        pallet.getItems().removeIf(item -> item.getItemId() == itemId);
+        return withCurrentWeight(pallet);
+    }
+
+    private static PalletDTO withCurrentWeight(final PalletDTO pallet) {
+        double accumulator = 0d;
+        for (ItemDTO item : pallet.getItems()) {
+            accumulator += item.getWeight();
         }
+        pallet.setCurrentWeight(accumulator);
         return pallet;
     }
 
+    public ItemRemovalDTO removeItemsFromPallet(final Set<Integer> itemIds, final int palletId) {
+        List<Integer> removed;
+        if (writeBuffer.isEnabled()) {
+            removed = removeBuffered(itemIds, palletId);
+        } else {
+            ItemRemovalEntity removal = itemRepository.removeItemsFromPallet(palletId, itemIds);
+            removed = removal.getRemovedItemIds();
+            if (!removed.isEmpty()) {
+                palletCache.invalidate(palletId, removal.getVersion());
+            }
+        }
+        Set<Integer> removedLookup = new HashSet<>(removed);
+        List<Integer> notOnPallet = itemIds.stream()
+                .filter(itemId -> !removedLookup.contains(itemId))
+                .collect(Collectors.toList());
+        return ItemRemovalDTO.builder()
+                .palletId(palletId)
+                .removedItemIds(removed)
+                .notOnPalletItemIds(notOnPallet)
+                .build();
+    }
 
-    public PalletDTO addItemToPallet(final ItemDTO item, final int palletId) {
-        PalletDTO pallet = getPalletById(palletId);
-        if (pallet.getCurrentWeight() + item.getWeight() > PalletDTO.MAX_WEIGHT) {
-            throw new PalletMaxWeightException(pallet.getCurrentWeight(), item.getWeight());
+    // the write hands back the pallet as it now is, inserted items with their generated ids, so the response needs no
+    // reload; it goes through to the cache under the new version only when its destination was already cached
+    private PalletDTO written(final PalletEntity pEntity) {
+        PalletDTO pallet = toPalletDTO(pEntity);
+        pallet.setDestination(cachedDestination(pEntity.getAccountId()));
+        if (pallet.getDestination() != null) {
+            palletCache.put(pEntity.getPalletId(), pEntity.getVersion(), pallet);
+        } else {
+            palletCache.invalidate(pEntity.getPalletId(), pEntity.getVersion());
         }
-        ItemEntity entity = mapper.map(item, ItemEntity.class);
-        entity.setPalletId(palletId);
-        itemRepository.saveItem(entity);
-        pallet.getItems().add(item);
         return pallet;
     }
 
-    public PalletDTO removeItemFromPallet(final int itemId, final int palletId) {
-        PalletDTO pallet = getPalletById(palletId);
-        ItemDTO item = pallet.getItems().stream()
-                .filter(i -> i.getItemId() == itemId)
-                .findFirst()
-                .orElseThrow(() -> new ItemNotOnPalletException(itemId));
-        itemRepository.removeItem(itemId);
-        pallet.getItems().removeIf(i -> i.getItemId() == itemId);
+    // writes never wait on the accounts service, so their responses carry whatever destination is cached, if any
+    private String cachedDestination(final int accountId) {
+        AccountDTO account = accountClient.getCachedAccountDetailsById(accountId);
+        return account != null ? account.getMailingAddress() : null;
+    }
+
+    private List<Integer> removeBuffered(final Set<Integer> itemIds, final int palletId) {
+        PendingWrite write = writeBuffer.removeAll(palletId, itemIds);
+        if (writeBuffer.getDefaultDurability() == Durability.COMMITTED) {
+            await(write.getCommitted());
+        }
+        List<Integer> removed = new ArrayList<>(write.getItems().size());
+        for (ItemEntity item : write.getItems()) {
+            removed.add(item.getItemId());
+        }
+        return removed;
+    }
+
+    // the buffer hands back the pallet as it was before the write, so the response needs no read;
+    // ids of buffered adds are only known once their group commit has been awaited
+    private PalletDTO acknowledge(final PendingWrite write, final boolean removal, final Durability durability) {
+        PalletEntity before = write.getPallet();
+        List<ItemEntity> written = write.getItems();
+        if ((durability != null ? durability : writeBuffer.getDefaultDurability()) == Durability.COMMITTED) {
+            written = await(write.getCommitted());
+        }
+
+        List<ItemEntity> items = new ArrayList<>(before.getItems());
+        if (removal) {
+            Set<Integer> removedIds = new HashSet<>();
+            for (ItemEntity item : written) {
+                removedIds.add(item.getItemId());
+            }
+            items.removeIf(item -> removedIds.contains(item.getItemId()));
+        } else {
+            items.addAll(written);
+        }
+        PalletDTO pallet = toPalletDTO(PalletEntity.builder()
+                .palletId(before.getPalletId())
+                .accountId(before.getAccountId())
+                .version(before.getVersion())
+                .items(items)
+                .build());
+        pallet.setDestination(cachedDestination(before.getAccountId()));
         return pallet;
     }
+
+    private static double weightOf(final List<ItemEntity> items) {
+        double weight = 0d;
+        for (ItemEntity item : items) {
+            weight += item.getWeight();
+        }
+        return weight;
+    }
 }
@@ -0,0 +1,8 @@
+package co.newlabs.writebehind;
+
+public enum Durability {
+    // acknowledged once the change is applied in memory and queued
+    BUFFERED,
+    // acknowledged once the group commit holding the change has committed
+    COMMITTED
+}
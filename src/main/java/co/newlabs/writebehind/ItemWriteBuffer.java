@@ -0,0 +1,395 @@
+package co.newlabs.writebehind;
+
+import co.newlabs.cache.PalletCache;
+import co.newlabs.exception.PalletMaxWeightException;
+import co.newlabs.metrics.PalletMetrics;
+import co.newlabs.repository.item.ItemChangesEntity;
+import co.newlabs.repository.item.ItemEntity;
+import co.newlabs.repository.item.ItemRepository;
+import co.newlabs.repository.pallet.PalletEntity;
+import co.newlabs.repository.pallet.PalletRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+@Slf4j
+@Component
+public class ItemWriteBuffer {
+    private static final CompletableFuture<List<ItemEntity>> NOTHING_PENDING = CompletableFuture.completedFuture(Collections.emptyList());
+
+    private final PalletRepository palletRepository;
+    private final ItemRepository itemRepository;
+    private final PalletCache palletCache;
+    private final PalletMetrics metrics;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Durability defaultDurability;
+    private final BlockingQueue<ItemChange> queue;
+    private final ConcurrentMap<Integer, PalletState> states = new ConcurrentHashMap<>();
+    private final Thread committer;
+    private volatile boolean running = true;
+
+    public ItemWriteBuffer(PalletRepository palletRepository, ItemRepository itemRepository, PalletCache palletCache, PalletMetrics metrics,
+                           @Value("${items.write-behind.enabled:false}") boolean enabled,
+                           @Value("${items.write-behind.capacity:8192}") int capacity,
+                           @Value("${items.write-behind.batch-size:500}") int batchSize,
+                           @Value("${items.write-behind.flush-interval-ms:10}") long flushIntervalMillis,
+                           @Value("${items.write-behind.durability:COMMITTED}") Durability defaultDurability) {
+        this.palletRepository = palletRepository;
+        this.itemRepository = itemRepository;
+        this.palletCache = palletCache;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.defaultDurability = defaultDurability;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.committer = new Thread(this::commitLoop, "item-writer");
+        this.committer.setDaemon(true);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            committer.start();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Durability getDefaultDurability() {
+        return defaultDurability;
+    }
+
+    public int getPendingChanges() {
+        return queue.size();
+    }
+
+    public PendingWrite add(final ItemEntity item, final double maxWeight) {
+        return addAll(item.getPalletId(), Collections.singletonList(item), maxWeight);
+    }
+
+    // the items are accepted together or not at all, and commit in the same group
+    public PendingWrite addAll(final int palletId, final List<ItemEntity> items, final double maxWeight) {
+        double weight = weightOf(items);
+        while (true) {
+            PalletState state = states.computeIfAbsent(palletId, this::load);
+            synchronized (state) {
+                if (state.retired) {
+                    continue;
+                }
+                if (state.weight + weight > maxWeight) {
+                    return reject(palletId, state);
+                }
+                ItemChange change = ItemChange.add(palletId, items, maxWeight);
+                if (queue.offer(change)) {
+                    PalletEntity before = state.snapshot();
+                    state.items.addAll(change.stored);
+                    state.weight += weight;
+                    return state.pending(change, before, items);
+                }
+            }
+            awaitCapacity();
+        }
+    }
+
+    public PendingWrite remove(final int palletId, final int itemId) {
+        return removeAll(palletId, Collections.singleton(itemId));
+    }
+
+    // removes whichever of the items are on the pallet as one change; rejected when none of them are
+    public PendingWrite removeAll(final int palletId, final Collection<Integer> itemIds) {
+        while (true) {
+            PalletState state = states.computeIfAbsent(palletId, this::load);
+            synchronized (state) {
+                if (state.retired) {
+                    continue;
+                }
+                List<ItemEntity> found = state.findAll(itemIds);
+                if (found.isEmpty()) {
+                    return reject(palletId, state);
+                }
+                ItemChange change = ItemChange.remove(palletId, found);
+                if (queue.offer(change)) {
+                    PalletEntity before = state.snapshot();
+                    state.removeAll(found);
+                    return state.pending(change, before, change.written);
+                }
+            }
+            awaitCapacity();
+        }
+    }
+
+    // a state loaded only for a rejected write is dropped again, so pallets nobody writes to are not kept in memory
+    private PendingWrite reject(final int palletId, final PalletState state) {
+        PendingWrite rejected = state.rejected();
+        retireIfIdle(palletId, state);
+        return rejected;
+    }
+
+    // called under the state's monitor
+    private void retireIfIdle(final int palletId, final PalletState state) {
+        if (state.pendingChanges <= 0) {
+            state.retired = true;
+            states.remove(palletId, state);
+        }
+    }
+
+    // gives reads and direct writes read-your-writes semantics for the pallet
+    public void awaitPallet(final int palletId) {
+        if (!enabled) {
+            return;
+        }
+        PalletState state = states.get(palletId);
+        if (state != null) {
+            CompletableFuture<List<ItemEntity>> last;
+            synchronized (state) {
+                last = state.lastChange;
+            }
+            last.exceptionally(ex -> null).join();
+        }
+    }
+
+    private PalletState load(final int palletId) {
+        PalletEntity pallet = palletRepository.getPalletById(palletId);
+        pallet.setItems(itemRepository.getItemsByPalletId(palletId));
+        return new PalletState(pallet);
+    }
+
+    // a full buffer pushes back on the scanners instead of growing without bound
+    private void awaitCapacity() {
+        LockSupport.parkNanos(flushIntervalNanos);
+    }
+
+    private void commitLoop() {
+        List<ItemChange> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                ItemChange first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // group commit: flush once the batch is full or the interval since the first change has passed
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    ItemChange next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException ex) {
+                if (!batch.isEmpty()) {
+                    commit(batch);
+                }
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(final List<ItemChange> batch) {
+        List<ItemEntity> added = new ArrayList<>();
+        List<ItemEntity> removed = new ArrayList<>();
+        double maxWeight = Double.MAX_VALUE;
+        for (ItemChange change : batch) {
+            if (change.removal) {
+                removed.addAll(change.written);
+            } else {
+                added.addAll(change.written);
+                maxWeight = Math.min(maxWeight, change.maxWeight);
+            }
+        }
+
+        long start = System.nanoTime();
+        ItemChangesEntity applied = null;
+        RuntimeException failure = null;
+        try {
+            applied = itemRepository.applyItemChanges(added, removed, maxWeight);
+            applied.getVersions().forEach(palletCache::invalidate);
+        } catch (RuntimeException ex) {
+            log.error("Unable to commit {} buffered item changes.", batch.size(), ex);
+            failure = ex;
+        }
+        metrics.recordWriteBehindFlush(batch.size(), System.nanoTime() - start);
+
+        for (ItemChange change : batch) {
+            // removals always apply with their group; only adds can be left out for going over the weight limit
+            boolean committed = failure == null
+                    && (change.removal || !applied.getOverweightPalletIds().contains(change.palletId));
+            settle(change, committed, failure);
+        }
+    }
+
+    // a committed change publishes its generated ids to the pallet state; a failed one is taken back out of it.
+    // The state is only dropped once nothing for the pallet is queued, so a reload always sees every accepted change.
+    private void settle(final ItemChange change, final boolean committed, final RuntimeException failure) {
+        PalletState state = states.get(change.palletId);
+        double currentWeight = 0d;
+        if (state != null) {
+            synchronized (state) {
+                if (!committed && change.removal) {
+                    state.items.addAll(change.stored);
+                    state.weight += weightOf(change.stored);
+                } else if (!committed) {
+                    state.removeAll(change.stored);
+                } else if (!change.removal) {
+                    for (int i = 0; i < change.stored.size(); i++) {
+                        change.stored.get(i).setItemId(change.written.get(i).getItemId());
+                    }
+                }
+                currentWeight = state.weight;
+                state.pendingChanges--;
+                retireIfIdle(change.palletId, state);
+            }
+        }
+
+        if (committed) {
+            change.committed.complete(change.written);
+        } else if (failure != null) {
+            change.committed.completeExceptionally(failure);
+        } else {
+            // only adds get here: the pallet filled up through changes the buffer did not see, so the group commit
+            // left them out
+            change.committed.completeExceptionally(new PalletMaxWeightException(currentWeight, weightOf(change.written)));
+        }
+    }
+
+    private static double weightOf(final List<ItemEntity> items) {
+        double weight = 0d;
+        for (ItemEntity item : items) {
+            weight += item.getWeight();
+        }
+        return weight;
+    }
+
+    private static List<ItemEntity> copies(final List<ItemEntity> items) {
+        List<ItemEntity> copies = new ArrayList<>(items.size());
+        for (ItemEntity item : items) {
+            copies.add(ItemEntity.builder()
+                    .itemId(item.getItemId())
+                    .palletId(item.getPalletId())
+                    .weight(item.getWeight())
+                    .product(item.getProduct())
+                    .build());
+        }
+        return copies;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        if (enabled) {
+            committer.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    private static final class PalletState {
+        private final PalletEntity pallet;
+        private final List<ItemEntity> items;
+        private double weight;
+        private int pendingChanges;
+        private CompletableFuture<List<ItemEntity>> lastChange = NOTHING_PENDING;
+        private boolean retired;
+
+        private PalletState(final PalletEntity pallet) {
+            this.pallet = pallet;
+            this.items = new ArrayList<>(pallet.getItems());
+            this.weight = weightOf(items);
+        }
+
+        private List<ItemEntity> findAll(final Collection<Integer> itemIds) {
+            List<ItemEntity> found = new ArrayList<>();
+            for (ItemEntity item : items) {
+                // buffered adds have no id until their group commit
+                if (item.getItemId() != 0 && itemIds.contains(item.getItemId())) {
+                    found.add(item);
+                }
+            }
+            return found;
+        }
+
+        // by identity, two buffered adds of the same product and weight are equal until they get their ids
+        private void removeAll(final List<ItemEntity> removed) {
+            Set<ItemEntity> lookup = Collections.newSetFromMap(new IdentityHashMap<>());
+            lookup.addAll(removed);
+            items.removeIf(lookup::contains);
+            weight -= weightOf(removed);
+        }
+
+        private PendingWrite pending(final ItemChange change, final PalletEntity before, final List<ItemEntity> written) {
+            pendingChanges++;
+            lastChange = change.committed;
+            return new PendingWrite(true, before, written, change.committed);
+        }
+
+        private PendingWrite rejected() {
+            return new PendingWrite(false, snapshot(), Collections.emptyList(), NOTHING_PENDING);
+        }
+
+        // a deep copy, so the committer filling in ids never races a caller reading the snapshot
+        private PalletEntity snapshot() {
+            return PalletEntity.builder()
+                    .palletId(pallet.getPalletId())
+                    .accountId(pallet.getAccountId())
+                    .items(copies(items))
+                    .build();
+        }
+    }
+
+    private static final class ItemChange {
+        private final int palletId;
+        private final boolean removal;
+        private final double maxWeight;
+        // the pallet state's own items, only ever touched under the state's monitor
+        private final List<ItemEntity> stored;
+        // the committer's copies, written to the database and handed to the writer once committed
+        private final List<ItemEntity> written;
+        private final CompletableFuture<List<ItemEntity>> committed = new CompletableFuture<>();
+
+        private ItemChange(final int palletId, final boolean removal, final double maxWeight,
+                           final List<ItemEntity> stored, final List<ItemEntity> written) {
+            this.palletId = palletId;
+            this.removal = removal;
+            this.maxWeight = maxWeight;
+            this.stored = stored;
+            this.written = written;
+        }
+
+        private static ItemChange add(final int palletId, final List<ItemEntity> items, final double maxWeight) {
+            return new ItemChange(palletId, false, maxWeight, copies(items), copies(items));
+        }
+
+        private static ItemChange remove(final int palletId, final List<ItemEntity> items) {
+            return new ItemChange(palletId, true, Double.MAX_VALUE, items, copies(items));
+        }
+    }
+}
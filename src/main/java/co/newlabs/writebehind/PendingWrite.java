@@ -0,0 +1,21 @@
+package co.newlabs.writebehind;
+
+import co.newlabs.repository.item.ItemEntity;
+import co.newlabs.repository.pallet.PalletEntity;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@Getter
+@AllArgsConstructor
+public class PendingWrite {
+    private final boolean accepted;
+    // the pallet as it was just before the write, a copy the caller owns
+    private final PalletEntity pallet;
+    // the items the write adds or removes; buffered adds have no id yet
+    private final List<ItemEntity> items;
+    // completes with the written items once committed, adds carrying their generated ids
+    private final CompletableFuture<List<ItemEntity>> committed;
+}
@@ -0,0 +1,13 @@
+create table pallets (
+    palletId int not null primary key,
+    accountId int not null
+);
+
+create table items (
+    itemId int auto_increment primary key,
+    palletId int not null,
+    weight double not null,
+    product varchar(25)
+);
+
+create index items_palletId_idx on items (palletId);
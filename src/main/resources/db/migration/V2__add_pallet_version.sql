@@ -0,0 +1 @@
+alter table pallets add column version bigint not null default 0;
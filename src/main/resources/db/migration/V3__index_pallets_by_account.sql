@@ -0,0 +1 @@
+create index pallets_accountId_idx on pallets (accountId);
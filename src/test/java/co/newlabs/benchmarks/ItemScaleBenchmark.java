@@ -0,0 +1,85 @@
+package co.newlabs.benchmarks;
+
+import co.newlabs.metrics.PalletMetrics;
+import co.newlabs.repository.item.ItemEntity;
+import co.newlabs.repository.item.ItemRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// latency should stay flat as the table grows; run -p items=10000000 with a large heap for the top end
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class ItemScaleBenchmark {
+    private static final int ITEMS_PER_PALLET = 20;
+
+    @Param({"10000", "100000", "1000000"})
+    private int items;
+
+    private EmbeddedDatabase database;
+    private NamedParameterJdbcTemplate template;
+    private ItemRepository itemRepository;
+    private int pallets;
+
+    @Setup
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("db/migration/V1__create_pallets_and_items.sql")
+                .build();
+        template = new NamedParameterJdbcTemplate(database);
+        itemRepository = new ItemRepository(template, new PalletMetrics(new SimpleMeterRegistry()), 500);
+
+        pallets = items / ITEMS_PER_PALLET;
+        template.update("insert into pallets (palletId, accountId) " +
+                "select x, mod(x, 100) + 1 from system_range(1, " + pallets + ")", Collections.emptyMap());
+        template.update("insert into items (palletId, weight, product) " +
+                "select mod(x, " + pallets + ") + 1, 1.5, concat('product ', x) from system_range(1, " + items + ")", Collections.emptyMap());
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    private int randomPalletId() {
+        return ThreadLocalRandom.current().nextInt(pallets) + 1;
+    }
+
+    @Benchmark
+    public List<ItemEntity> getItemsByPalletId() {
+        return itemRepository.getItemsByPalletId(randomPalletId());
+    }
+
+    @Benchmark
+    public double getTotalWeightByPalletId() {
+        return itemRepository.getTotalWeightByPalletId(randomPalletId());
+    }
+
+    @Benchmark
+    public boolean saveAndRemoveItem() {
+        ItemEntity entity = ItemEntity.builder()
+                .palletId(randomPalletId())
+                .weight(0.5)
+                .product("scale")
+                .build();
+        boolean saved = itemRepository.saveItemsWithinWeight(entity.getPalletId(), Collections.singletonList(entity), Double.MAX_VALUE)
+                .isPresent();
+        // the item is gone again before the next call so the table size stays fixed
+        itemRepository.removeItem(entity.getPalletId(), entity.getItemId());
+        return saved;
+    }
+}
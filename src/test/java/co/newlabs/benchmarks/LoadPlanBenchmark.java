@@ -0,0 +1,68 @@
+package co.newlabs.benchmarks;
+
+import co.newlabs.dto.PalletDTO;
+import co.newlabs.planning.BinPacker;
+import co.newlabs.planning.PackingStrategy;
+import co.newlabs.planning.Packing;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// parallel=true forces the fork/join path at every size so it can be compared with the sequential pass
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadPlanBenchmark {
+
+    @Param({"1000", "100000"})
+    private int items;
+
+    @Param({"50"})
+    private int candidatePallets;
+
+    // small: many light cartons, uniform: anything up to a fifth of a pallet, bimodal: heavy machinery mixed with cartons
+    @Param({"small", "uniform", "bimodal"})
+    private String distribution;
+
+    @Param({"FIRST_FIT", "BEST_FIT"})
+    private PackingStrategy strategy;
+
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    private double[] weights;
+    private double[] loads;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        weights = new double[items];
+        for (int item = 0; item < items; item++) {
+            weights[item] = weight(random);
+        }
+        loads = new double[candidatePallets];
+        for (int pallet = 0; pallet < candidatePallets; pallet++) {
+            loads[pallet] = random.nextDouble() * PalletDTO.MAX_WEIGHT;
+        }
+    }
+
+    private double weight(final Random random) {
+        switch (distribution) {
+            case "small":
+                return 1 + random.nextDouble() * 49;
+            case "bimodal":
+                return random.nextInt(10) == 0 ? 1500 + random.nextDouble() * 1500 : 5 + random.nextDouble() * 95;
+            default:
+                return 1 + random.nextDouble() * PalletDTO.MAX_WEIGHT / 5;
+        }
+    }
+
+    @Benchmark
+    public Packing pack() {
+        return BinPacker.pack(weights, loads, PalletDTO.MAX_WEIGHT, strategy, parallel ? 1 : Integer.MAX_VALUE);
+    }
+}
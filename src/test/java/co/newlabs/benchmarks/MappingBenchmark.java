@@ -0,0 +1,69 @@
+package co.newlabs.benchmarks;
+
+import co.newlabs.dto.ItemDTO;
+import co.newlabs.dto.PalletDTO;
+import co.newlabs.mapper.PalletMapper;
+import co.newlabs.repository.item.ItemEntity;
+import co.newlabs.repository.pallet.PalletEntity;
+import ma.glasnost.orika.MapperFacade;
+import ma.glasnost.orika.impl.DefaultMapperFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int items;
+
+    private MapperFacade orika;
+    private PalletMapper palletMapper;
+    private PalletEntity pallet;
+    private List<ItemEntity> itemEntities;
+
+    @Setup
+    public void setUp() {
+        DefaultMapperFactory mapperFactory = new DefaultMapperFactory.Builder()
+                .dumpStateOnException(false)
+                .useBuiltinConverters(true)
+                .build();
+        mapperFactory.classMap(PalletDTO.class, PalletEntity.class)
+                .mapNulls(true)
+                .exclude("items")
+                .byDefault()
+                .register();
+        mapperFactory.classMap(ItemDTO.class, ItemEntity.class)
+                .mapNulls(true)
+                .byDefault()
+                .register();
+        orika = mapperFactory.getMapperFacade();
+        palletMapper = new PalletMapper();
+
+        itemEntities = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            itemEntities.add(ItemEntity.builder().itemId(i).palletId(1).weight(i % 100 + 0.5).product("product " + i).build());
+        }
+        pallet = PalletEntity.builder().palletId(1).accountId(1).items(itemEntities).build();
+    }
+
+    @Benchmark
+    public void orika(Blackhole blackhole) {
+        blackhole.consume(orika.map(pallet, PalletDTO.class));
+        blackhole.consume(orika.mapAsList(itemEntities, ItemDTO.class));
+    }
+
+    @Benchmark
+    public void palletMapper(Blackhole blackhole) {
+        blackhole.consume(palletMapper.toPalletDTO(pallet));
+        blackhole.consume(palletMapper.toItemDTOs(itemEntities));
+    }
+}
@@ -0,0 +1,105 @@
+package co.newlabs.benchmarks;
+
+import co.newlabs.Application;
+import co.newlabs.cache.PalletCache;
+import co.newlabs.client.account.AccountCache;
+import co.newlabs.client.account.AccountClient;
+import co.newlabs.dto.PalletDTO;
+import co.newlabs.repository.item.ItemEntity;
+import co.newlabs.repository.item.ItemRepository;
+import co.newlabs.repository.pallet.PalletEntity;
+import co.newlabs.repository.pallet.PalletRepository;
+import co.newlabs.service.PalletService;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PalletReadLatencyBenchmark {
+    private static final String ACCOUNT_BODY = "{\"accountId\":1,\"accountName\":\"someCorp\",\"address\":\"123 Fake St\"," +
+            "\"city\":\"Townsville\",\"state\":\"Statesoda\",\"zip\":\"12345\"}";
+
+    @Param({"0", "20", "100"})
+    private int accountDelayMillis;
+
+    private WireMockServer wireMockServer;
+    private ConfigurableApplicationContext context;
+    private PalletService palletService;
+    private PalletRepository palletRepository;
+    private ItemRepository itemRepository;
+    private AccountClient accountClient;
+    private AccountCache accountCache;
+    private PalletCache palletCache;
+
+    @Setup
+    public void setUp() {
+        wireMockServer = new WireMockServer(options().dynamicPort());
+        wireMockServer.start();
+        wireMockServer.stubFor(get(urlMatching("/account/api/active/.*"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-type", "application/json")
+                        .withFixedDelay(accountDelayMillis)
+                        .withBody(ACCOUNT_BODY)));
+
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .properties("wiremock.server.port=" + wireMockServer.port(),
+                        "spring.datasource.generate-unique-name=true")
+                .run();
+        palletService = context.getBean(PalletService.class);
+        palletRepository = context.getBean(PalletRepository.class);
+        itemRepository = context.getBean(ItemRepository.class);
+        accountClient = context.getBean(AccountClient.class);
+        accountCache = context.getBean(AccountCache.class);
+        palletCache = context.getBean(PalletCache.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        wireMockServer.stop();
+    }
+
+    // both lookups must reach the database and the accounts stub on every call
+    @Setup(Level.Invocation)
+    public void clearCaches() {
+        accountCache.clear();
+        palletCache.clear();
+    }
+
+    @Benchmark
+    public PalletDTO overlapped() {
+        return palletService.getPalletById(1);
+    }
+
+    @Benchmark
+    public void sequential(Blackhole blackhole) {
+        PalletEntity pallet = palletRepository.getPalletById(1);
+        List<ItemEntity> items = itemRepository.getItemsByPalletId(1);
+        blackhole.consume(items);
+        blackhole.consume(accountClient.getAccountDetailsById(pallet.getAccountId()));
+    }
+
+    // what an unchanged poll costs once the client sends If-None-Match
+    @Benchmark
+    public long revalidated() {
+        return palletService.getPalletVersion(1);
+    }
+}
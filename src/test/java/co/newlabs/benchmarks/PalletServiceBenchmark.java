@@ -0,0 +1,201 @@
+package co.newlabs.benchmarks;
+
+import co.newlabs.Application;
+import co.newlabs.cache.PalletCache;
+import co.newlabs.client.account.AccountCache;
+import co.newlabs.dto.ItemDTO;
+import co.newlabs.dto.PalletDTO;
+import co.newlabs.dto.PalletView;
+import co.newlabs.repository.item.ItemEntity;
+import co.newlabs.repository.item.ItemRepository;
+import co.newlabs.service.PalletService;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+
+// run with -prof gc to report allocation rate; seeded size is set with -p pallets=... -p itemsPerPallet=...
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PalletServiceBenchmark {
+    private static final String ACCOUNT_BODY = "{\"accountId\":1,\"accountName\":\"someCorp\",\"address\":\"123 Fake St\"," +
+            "\"city\":\"Townsville\",\"state\":\"Statesoda\",\"zip\":\"12345\"}";
+    private static final int FIRST_PALLET_ID = 1000;
+
+    @Param({"100"})
+    private int pallets;
+
+    @Param({"10", "100", "1000"})
+    private int itemsPerPallet;
+
+    private WireMockServer wireMockServer;
+    private ConfigurableApplicationContext context;
+    private NamedParameterJdbcTemplate template;
+    private PalletService palletService;
+    private ItemRepository itemRepository;
+    private PalletCache palletCache;
+    private AccountCache accountCache;
+    private ItemDTO item;
+
+    @Setup
+    public void setUp() {
+        wireMockServer = new WireMockServer(options().dynamicPort());
+        wireMockServer.start();
+        wireMockServer.stubFor(get(urlMatching("/account/api/active/.*"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-type", "application/json")
+                        .withBody(ACCOUNT_BODY)));
+
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .properties("wiremock.server.port=" + wireMockServer.port(),
+                        "spring.datasource.generate-unique-name=true")
+                .run();
+        template = context.getBean(NamedParameterJdbcTemplate.class);
+        palletService = context.getBean(PalletService.class);
+        itemRepository = context.getBean(ItemRepository.class);
+        palletCache = context.getBean(PalletCache.class);
+        accountCache = context.getBean(AccountCache.class);
+        item = ItemDTO.builder().weight(0.01).product("benchmark").build();
+        seed();
+    }
+
+    private void seed() {
+        SqlParameterSource[] palletBatch = new SqlParameterSource[pallets];
+        for (int p = 0; p < pallets; p++) {
+            palletBatch[p] = new MapSqlParameterSource()
+                    .addValue("palletId", FIRST_PALLET_ID + p)
+                    .addValue("accountId", p % 10 + 1);
+        }
+        template.batchUpdate("insert into pallets (palletId, accountId) values (:palletId, :accountId)", palletBatch);
+
+        // weights stay well under MAX_WEIGHT so the add benchmark never hits the limit
+        SqlParameterSource[] itemBatch = new SqlParameterSource[itemsPerPallet];
+        for (int p = 0; p < pallets; p++) {
+            for (int i = 0; i < itemsPerPallet; i++) {
+                itemBatch[i] = new MapSqlParameterSource()
+                        .addValue("palletId", FIRST_PALLET_ID + p)
+                        .addValue("weight", 1000d / itemsPerPallet)
+                        .addValue("product", "product " + i);
+            }
+            template.batchUpdate("insert into items (palletId, weight, product) values (:palletId, :weight, :product)", itemBatch);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        wireMockServer.stop();
+    }
+
+    // a safety net for adds whose invocation teardown did not run
+    @TearDown(Level.Iteration)
+    public void removeAddedItems() {
+        template.update("delete from items where product = 'benchmark'", Collections.emptyMap());
+        palletCache.clear();
+    }
+
+    // only the remove benchmark pays for inserting the item it removes
+    @State(Scope.Thread)
+    public static class RemovableItem {
+        private int palletId;
+        private int itemId;
+
+        @Setup(Level.Invocation)
+        public void insert(PalletServiceBenchmark benchmark) {
+            palletId = benchmark.randomPalletId();
+            ItemEntity item = ItemEntity.builder()
+                    .weight(0.01)
+                    .product("removable")
+                    .build();
+            long version = benchmark.itemRepository.saveItemsWithinWeight(palletId, Collections.singletonList(item), Double.MAX_VALUE)
+                    .getAsLong();
+            itemId = item.getItemId();
+            benchmark.palletCache.invalidate(palletId, version);
+        }
+    }
+
+    // only the add benchmark pays for taking its item off again, so the pallets it reads keep the seeded size
+    @State(Scope.Thread)
+    public static class AddedItem {
+        private int palletId;
+        private PalletDTO pallet;
+
+        @TearDown(Level.Invocation)
+        public void remove(PalletServiceBenchmark benchmark) {
+            for (ItemDTO added : pallet.getItems()) {
+                if ("benchmark".equals(added.getProduct())) {
+                    benchmark.itemRepository.removeItem(palletId, added.getItemId())
+                            .ifPresent(version -> benchmark.palletCache.invalidate(palletId, version));
+                }
+            }
+        }
+    }
+
+    // both caches are emptied before every view read, so each view pays for exactly the queries and calls it needs
+    @State(Scope.Thread)
+    public static class UncachedPallet {
+        private int palletId;
+
+        @Setup(Level.Invocation)
+        public void clearCaches(PalletServiceBenchmark benchmark) {
+            palletId = benchmark.randomPalletId();
+            benchmark.palletCache.clear();
+            benchmark.accountCache.clear();
+        }
+    }
+
+    private int randomPalletId() {
+        return FIRST_PALLET_ID + ThreadLocalRandom.current().nextInt(pallets);
+    }
+
+    @Benchmark
+    public PalletDTO getPalletById() {
+        return palletService.getPalletById(randomPalletId());
+    }
+
+    @Benchmark
+    public PalletDTO getPalletSummary(UncachedPallet uncached) {
+        return palletService.getPalletById(uncached.palletId, PalletView.SUMMARY);
+    }
+
+    @Benchmark
+    public PalletDTO getPalletItems(UncachedPallet uncached) {
+        return palletService.getPalletById(uncached.palletId, PalletView.ITEMS);
+    }
+
+    @Benchmark
+    public PalletDTO getPalletFull(UncachedPallet uncached) {
+        return palletService.getPalletById(uncached.palletId, PalletView.FULL);
+    }
+
+    @Benchmark
+    public PalletDTO addItemToPallet(AddedItem added) {
+        added.palletId = randomPalletId();
+        added.pallet = palletService.addItemToPallet(item, added.palletId);
+        return added.pallet;
+    }
+
+    @Benchmark
+    public PalletDTO removeItemFromPallet(RemovableItem removable) {
+        return palletService.removeItemFromPallet(removable.itemId, removable.palletId);
+    }
+}
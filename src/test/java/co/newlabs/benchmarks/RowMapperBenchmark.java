@@ -0,0 +1,68 @@
+package co.newlabs.benchmarks;
+
+import co.newlabs.repository.item.ItemEntity;
+import co.newlabs.repository.item.ItemRowMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMapperBenchmark {
+    private static final String QUERY = "select " + ItemRowMapper.COLUMNS + " from items where palletId = :palletId";
+    private static final Map<String, Object> PARAMS = Collections.singletonMap("palletId", 1);
+
+    @Param({"10", "1000", "100000"})
+    private int rows;
+
+    private EmbeddedDatabase database;
+    private NamedParameterJdbcTemplate template;
+
+    @Setup
+    public void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("db/migration/V1__create_pallets_and_items.sql")
+                .build();
+        template = new NamedParameterJdbcTemplate(database);
+
+        SqlParameterSource[] batch = new SqlParameterSource[rows];
+        for (int i = 0; i < rows; i++) {
+            batch[i] = new MapSqlParameterSource()
+                    .addValue("itemId", i)
+                    .addValue("weight", i % 100 + 0.5)
+                    .addValue("product", "product " + i);
+        }
+        template.batchUpdate("insert into items (itemId, palletId, weight, product) values (:itemId, 1, :weight, :product)", batch);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.shutdown();
+    }
+
+    @Benchmark
+    public List<ItemEntity> beanPropertyRowMapper() {
+        return template.query(QUERY, PARAMS, new BeanPropertyRowMapper<>(ItemEntity.class));
+    }
+
+    @Benchmark
+    public List<ItemEntity> itemRowMapper() {
+        return template.query(QUERY, PARAMS, ItemRowMapper.INSTANCE);
+    }
+}
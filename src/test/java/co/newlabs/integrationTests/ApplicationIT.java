@@ -1,8 +1,12 @@
 package co.newlabs.integrationTests;
 
+import co.newlabs.cache.PalletCache;
+import co.newlabs.client.account.AccountCache;
 import co.newlabs.client.account.AccountClient;
 import co.newlabs.client.account.AccountDTO;
 import co.newlabs.dto.ItemDTO;
+import co.newlabs.dto.LoadPlanDTO;
+import co.newlabs.dto.LoadPlanRequestDTO;
 import co.newlabs.dto.PalletDTO;
 import co.newlabs.exception.AccountAccessException;
 import co.newlabs.repository.pallet.PalletEntity;
@@ -12,6 +16,7 @@ import io.restassured.RestAssured;
 import io.restassured.response.Response;
 import io.restassured.specification.RequestSpecification;
 
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -20,12 +25,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.web.server.LocalServerPort;
 import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.web.client.HttpServerErrorException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static io.restassured.RestAssured.given;
@@ -36,6 +45,10 @@ import static org.hamcrest.CoreMatchers.equalTo;
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @AutoConfigureWireMock(port = 0)
 public class ApplicationIT {
+    // the load plan runs against its own account and pallet so it does not depend on what other tests left on pallet 2
+    private static final int PLAN_ACCOUNT_ID = 300;
+    private static final int PLAN_PALLET_ID = 300;
+
     @LocalServerPort
     private int REST_ASSURED_PORT_NUMBER;
 
@@ -45,13 +58,30 @@ public class ApplicationIT {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private AccountCache accountCache;
+
+    @Autowired
+    private PalletCache palletCache;
+
+    @Autowired
+    private NamedParameterJdbcTemplate template;
+
     @Before
     public void setUp(){
         wireMockServer.resetAll();
+        accountCache.clear();
+        palletCache.clear();
         RestAssured.port = REST_ASSURED_PORT_NUMBER;
         RestAssured.baseURI = "http://localhost:" + REST_ASSURED_PORT_NUMBER;
     }
 
+    @After
+    public void tearDown() {
+        template.update("delete from items where palletId = :palletId", Collections.singletonMap("palletId", PLAN_PALLET_ID));
+        template.update("delete from pallets where palletId = :palletId", Collections.singletonMap("palletId", PLAN_PALLET_ID));
+    }
+
     @Test
     public void getPalletById_ScenarioA() throws Exception {
         //arrange
@@ -100,11 +130,58 @@ public class ApplicationIT {
     }
 
     @Test
-    public void addItemToPallet_ScenarioA() throws Exception {
+    public void getPalletById_ScenarioB() throws Exception {
         //arrange
+        AccountDTO mockAccount = AccountDTO.builder()
+                .accountId(1)
+                .accountName("someCorp")
+                .address("123 Fake St")
+                .city("Townsville")
+                .state("Statesoda")
+                .zip("12345")
+                .build();
+
+        wireMockServer.stubFor(get(urlMatching("/account/api/active/1"))
+            .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-type", "application/json")
+            .withBody(objectMapper.writeValueAsString(mockAccount))
+            )
+        );
+
+        //act
+        Response summary = given().get("/pallet/1?view=summary");
+        Response items = given().get("/pallet/1?view=items");
+
+        //assert
+        PalletDTO expectedSummary = PalletDTO.builder()
+                .palletId(1)
+                .accountId(1)
+                .currentWeight(1.11)
+                .destination("123 Fake St Townsville, Statesoda 12345")
+                .build();
+
+        PalletDTO expectedItems = PalletDTO.builder()
+                .palletId(1)
+                .accountId(1)
+                .currentWeight(1.11)
+                .items(Collections.singletonList(ItemDTO.builder().itemId(1).product("stuff").weight(1.11).build()))
+                .build();
+
+        Assert.assertThat(objectMapper.readValue(summary.getBody().print(), PalletDTO.class), is(equalTo(expectedSummary)));
+        Assert.assertThat(objectMapper.readValue(items.getBody().print(), PalletDTO.class), is(equalTo(expectedItems)));
+        Assert.assertThat(summary.getStatusCode(), is(200));
+        Assert.assertThat(items.getStatusCode(), is(200));
+
+        //verify
+        wireMockServer.verify(1, getRequestedFor(urlMatching("/account/api/active/1")));
+    }
 
+    @Test
+    public void streamPalletById_ScenarioA() throws Exception {
+        //arrange
         AccountDTO mockAccount = AccountDTO.builder()
-                .accountId(2)
+                .accountId(1)
                 .accountName("someCorp")
                 .address("123 Fake St")
                 .city("Townsville")
@@ -113,13 +190,56 @@ public class ApplicationIT {
                 .build();
 
         wireMockServer.stubFor(get(urlMatching("/account/api/active/1"))
-                .willReturn(aResponse()
-                        .withStatus(200)
-                        .withHeader("Content-type", "application/json")
-                        .withBody(objectMapper.writeValueAsString(mockAccount))
-                )
+            .willReturn(aResponse()
+            .withStatus(200)
+            .withHeader("Content-type", "application/json")
+            .withBody(objectMapper.writeValueAsString(mockAccount))
+            )
         );
 
+        //act
+        RequestSpecification request = given();
+        Response response = request.get("/pallet/1/stream");
+
+        //assert
+        List<ItemDTO> expectedList = new ArrayList<>();
+        expectedList.add(ItemDTO.builder().itemId(1).product("stuff").weight(1.11).build());
+
+        PalletDTO expectedPallet = PalletDTO.builder()
+                .palletId(1)
+                .accountId(1)
+                .currentWeight(1.11)
+                .destination("123 Fake St Townsville, Statesoda 12345")
+                .items(expectedList)
+                .build();
+
+        PalletDTO actualPallet = objectMapper.readValue(response.getBody().print(), PalletDTO.class);
+
+        Assert.assertThat(actualPallet, is(equalTo(expectedPallet)));
+        Assert.assertThat(response.getStatusCode(), is(200));
+        Assert.assertThat(wireMockServer.findAllUnmatchedRequests().size(), is(0));
+
+        //verify
+
+        wireMockServer.verify(1, getRequestedFor(urlMatching("/account/api/active/1")));
+    }
+
+    @Test
+    public void addItemToPallet_ScenarioA() throws Exception {
+        //arrange
+
+        AccountDTO mockAccount = AccountDTO.builder()
+                .accountId(2)
+                .accountName("someCorp")
+                .address("123 Fake St")
+                .city("Townsville")
+                .state("Statesoda")
+                .zip("12345")
+                .build();
+
+        // writes only use an account that is already cached, they never call the accounts service
+        accountCache.put(1, mockAccount);
+
 
 
         ItemDTO mockItem = ItemDTO.builder()
@@ -143,7 +263,7 @@ public class ApplicationIT {
                 .build();
 
         ItemDTO expectedItem = ItemDTO.builder()
-                .itemId(2)
+                .itemId(3)
                 .weight(25.34)
                 .product("Bubbly")
                 .build();
@@ -157,7 +277,7 @@ public class ApplicationIT {
                 .palletId(1)
                 .items(expectedItems)
                 .destination("123 Fake St Townsville, Statesoda 12345")
-                .currentWeight(1.11)
+                .currentWeight(1.11 + 25.34)
                 .build();
 
         PalletDTO actualPallet = objectMapper.readValue(response.getBody().print(), PalletDTO.class);
@@ -167,7 +287,46 @@ public class ApplicationIT {
         Assert.assertThat(wireMockServer.findAllUnmatchedRequests().size(), is(0));
 
         //verify
-        wireMockServer.verify(1, getRequestedFor(urlMatching("/account/api/active/1")));
+        wireMockServer.verify(0, getRequestedFor(urlMatching("/account/api/.*")));
+    }
+
+    @Test
+    public void planLoad_ScenarioA() throws Exception {
+        //arrange
+        Map<String, Object> params = new HashMap<>();
+        params.put("palletId", PLAN_PALLET_ID);
+        params.put("accountId", PLAN_ACCOUNT_ID);
+        template.update("insert into pallets (palletId, accountId) values (:palletId, :accountId)", params);
+        template.update("insert into items (palletId, weight, product) values (:palletId, 10, 'crate')", params);
+
+        ItemDTO fits = ItemDTO.builder().product("stuff").weight(4590d).build();
+        ItemDTO overflow = ItemDTO.builder().product("things").weight(4599d).build();
+        ItemDTO tooHeavy = ItemDTO.builder().product("anvil").weight(5000d).build();
+
+        LoadPlanRequestDTO planRequest = LoadPlanRequestDTO.builder()
+                .accountId(PLAN_ACCOUNT_ID)
+                .items(Arrays.asList(fits, overflow, tooHeavy))
+                .build();
+
+        //act
+        RequestSpecification request = given();
+        request.contentType("application/json").body(objectMapper.writeValueAsString(planRequest));
+        Response response = request.post("/pallet/plan");
+
+        //assert
+        LoadPlanDTO actualPlan = objectMapper.readValue(response.getBody().print(), LoadPlanDTO.class);
+
+        Assert.assertThat(response.getStatusCode(), is(200));
+        Assert.assertThat(actualPlan.getPallets().size(), is(2));
+        Assert.assertThat(actualPlan.getPallets().get(0).getPalletId(), is(PLAN_PALLET_ID));
+        Assert.assertThat(actualPlan.getPallets().get(0).getItems(), is(equalTo(Collections.singletonList(fits))));
+        Assert.assertThat(actualPlan.getPallets().get(1).getPalletId(), is(0));
+        Assert.assertThat(actualPlan.getPallets().get(1).getItems(), is(equalTo(Collections.singletonList(overflow))));
+        Assert.assertThat(actualPlan.getNewPallets(), is(1));
+        Assert.assertThat(actualPlan.getUnplaced(), is(equalTo(Collections.singletonList(tooHeavy))));
+
+        //verify
+        wireMockServer.verify(0, getRequestedFor(urlMatching("/account/api/.*")));
     }
 
     @Test
@@ -183,13 +342,7 @@ public class ApplicationIT {
                 .zip("12345")
                 .build();
 
-        wireMockServer.stubFor(get(urlMatching("/account/api/active/2"))
-                .willReturn(aResponse()
-                        .withStatus(200)
-                        .withHeader("Content-type", "application/json")
-                        .withBody(objectMapper.writeValueAsString(mockAccount))
-                )
-        );
+        accountCache.put(2, mockAccount);
 
         //act
         RequestSpecification request = given();
@@ -201,7 +354,7 @@ public class ApplicationIT {
         PalletDTO expectedPallet = PalletDTO.builder()
                 .palletId(2)
                 .accountId(2)
-                .currentWeight(2.22)
+                .currentWeight(0d)
                 .items(expectedItems)
                 .destination("123 Fake St Townsville, Statesoda 12345")
                 .build();
@@ -213,7 +366,7 @@ public class ApplicationIT {
         Assert.assertThat(wireMockServer.findAllUnmatchedRequests().size(), is(0));
 
         //verify
-        wireMockServer.verify(1, getRequestedFor(urlMatching("/account/api/active/2")));
+        wireMockServer.verify(0, getRequestedFor(urlMatching("/account/api/.*")));
     }
 
     @Test
@@ -374,4 +527,213 @@ public class ApplicationIT {
 
         wireMockServer.verify(1, getRequestedFor(urlMatching("/account/api/active/1")));
     }
+
+    @Test
+    public void AccountClientException_ScenarioD() throws Exception {
+        //arrange
+        wireMockServer.stubFor(get(urlMatching("/account/api/active/1"))
+                .willReturn(aResponse()
+                        .withStatus(404)
+                        .withBody("activeAccount Error")
+                )
+        );
+
+        wireMockServer.stubFor(get(urlMatching("/account/api/warehouse/1"))
+                .willReturn(aResponse()
+                        .withStatus(503)
+                        .withBody("warehouseAccount Error")
+                )
+        );
+
+        //act
+        RequestSpecification request = given();
+        Response response = request.get("/pallet/1");
+
+        //assert
+        Assert.assertThat(response.getStatusCode(), is(200));
+
+        PalletDTO actualPallet = objectMapper.readValue(response.getBody().print(), PalletDTO.class);
+
+        Assert.assertThat(actualPallet.getDestination(), is(""));
+
+        //verify
+
+        wireMockServer.verify(1, getRequestedFor(urlMatching("/account/api/warehouse/1")));
+    }
+
+    @Test
+    public void ConditionalGet_ScenarioA() throws Exception {
+        //arrange
+        AccountDTO mockAccount = AccountDTO.builder()
+                .accountId(1)
+                .accountName("someCorp")
+                .address("123 Fake St")
+                .city("Townsville")
+                .state("Statesoda")
+                .zip("12345")
+                .build();
+
+        wireMockServer.stubFor(get(urlMatching("/account/api/active/1"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-type", "application/json")
+                        .withBody(objectMapper.writeValueAsString(mockAccount))
+                )
+        );
+
+        Response first = given().get("/pallet/1");
+        String eTag = first.getHeader("ETag");
+        long missesBefore = palletCache.getMissCount();
+        long hitsBefore = palletCache.getHitCount();
+
+        //act
+        Response second = given().header("If-None-Match", eTag).get("/pallet/1");
+
+        //assert
+        Assert.assertThat(first.getStatusCode(), is(200));
+        Assert.assertThat(second.getStatusCode(), is(304));
+        Assert.assertThat(second.getHeader("ETag"), is(eTag));
+        Assert.assertThat(second.getBody().asString(), is(""));
+        Assert.assertThat(palletCache.getMissCount(), is(missesBefore));
+        Assert.assertThat(palletCache.getHitCount(), is(hitsBefore));
+
+        //verify
+        wireMockServer.verify(1, getRequestedFor(urlMatching("/account/api/active/1")));
+    }
+
+    @Test
+    public void AccountCache_ScenarioA() throws Exception {
+        //arrange
+        AccountDTO mockAccount = AccountDTO.builder()
+                .accountId(1)
+                .accountName("someCorp")
+                .address("123 Fake St")
+                .city("Townsville")
+                .state("Statesoda")
+                .zip("12345")
+                .build();
+
+        wireMockServer.stubFor(get(urlMatching("/account/api/active/1"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-type", "application/json")
+                        .withBody(objectMapper.writeValueAsString(mockAccount))
+                )
+        );
+
+        long hitsBefore = accountCache.getHitCount();
+
+        //act
+        Response first = given().get("/pallet/1");
+        // otherwise the second read is served whole from the pallet cache and never reaches the account cache
+        palletCache.clear();
+        Response second = given().get("/pallet/1");
+
+        //assert
+        PalletDTO firstPallet = objectMapper.readValue(first.getBody().print(), PalletDTO.class);
+        PalletDTO secondPallet = objectMapper.readValue(second.getBody().print(), PalletDTO.class);
+
+        Assert.assertThat(secondPallet, is(equalTo(firstPallet)));
+        Assert.assertThat(secondPallet.getDestination(), is("123 Fake St Townsville, Statesoda 12345"));
+        Assert.assertThat(accountCache.getHitCount(), is(hitsBefore + 1));
+
+        //verify
+        wireMockServer.verify(1, getRequestedFor(urlMatching("/account/api/active/1")));
+    }
+
+    @Test
+    public void AccountCache_ScenarioB() throws Exception {
+        //arrange
+        wireMockServer.stubFor(get(urlMatching("/account/api/active/1"))
+                .willReturn(aResponse()
+                        .withStatus(404)
+                        .withBody("activeAccount Error")
+                )
+        );
+
+        AccountDTO mockAccount = AccountDTO.builder()
+                .accountId(1)
+                .accountName("fakeCorp")
+                .address("123 Fake St")
+                .city("Townsville")
+                .state("Statesoda")
+                .zip("12345")
+                .build();
+
+        wireMockServer.stubFor(get(urlMatching("/account/api/warehouse/1"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-type", "application/json")
+                        .withBody(objectMapper.writeValueAsString(mockAccount))
+                )
+        );
+
+        //act
+        given().get("/pallet/1");
+        accountCache.evict(1);
+        palletCache.clear();
+        given().get("/pallet/1");
+
+        //assert
+        Assert.assertThat(wireMockServer.findAllUnmatchedRequests().size(), is(0));
+
+        //verify
+        wireMockServer.verify(1, getRequestedFor(urlMatching("/account/api/active/1")));
+        wireMockServer.verify(2, getRequestedFor(urlMatching("/account/api/warehouse/1")));
+    }
+
+    @Test
+    public void getPalletsByIds_ScenarioA() throws Exception {
+        //arrange
+        AccountDTO firstAccount = AccountDTO.builder()
+                .accountId(1)
+                .accountName("someCorp")
+                .address("123 Fake St")
+                .city("Townsville")
+                .state("Statesoda")
+                .zip("12345")
+                .build();
+
+        AccountDTO secondAccount = AccountDTO.builder()
+                .accountId(2)
+                .accountName("fakeCorp")
+                .address("456 Real Ave")
+                .city("Citytown")
+                .state("Statesoda")
+                .zip("54321")
+                .build();
+
+        wireMockServer.stubFor(get(urlMatching("/account/api/active/1"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-type", "application/json")
+                        .withBody(objectMapper.writeValueAsString(firstAccount))
+                )
+        );
+
+        wireMockServer.stubFor(get(urlMatching("/account/api/active/2"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-type", "application/json")
+                        .withBody(objectMapper.writeValueAsString(secondAccount))
+                )
+        );
+
+        //act
+        Response response = given().get("/pallet?ids=1,2,99");
+
+        //assert
+        PalletDTO[] actualPallets = objectMapper.readValue(response.getBody().print(), PalletDTO[].class);
+
+        Assert.assertThat(response.getStatusCode(), is(200));
+        Assert.assertThat(actualPallets.length, is(2));
+        Assert.assertThat(actualPallets[0].getPalletId(), is(1));
+        Assert.assertThat(actualPallets[0].getDestination(), is("123 Fake St Townsville, Statesoda 12345"));
+        Assert.assertThat(actualPallets[1].getPalletId(), is(2));
+        Assert.assertThat(actualPallets[1].getDestination(), is("456 Real Ave Citytown, Statesoda 54321"));
+
+        //verify
+        wireMockServer.verify(1, getRequestedFor(urlMatching("/account/api/active/1")));
+        wireMockServer.verify(1, getRequestedFor(urlMatching("/account/api/active/2")));
+    }
 }
@@ -0,0 +1,208 @@
+package co.newlabs.integrationTests;
+
+import co.newlabs.dto.PalletDTO;
+import co.newlabs.repository.item.ItemChangesEntity;
+import co.newlabs.repository.item.ItemEntity;
+import co.newlabs.repository.item.ItemMoveEntity;
+import co.newlabs.repository.item.ItemRemovalEntity;
+import co.newlabs.repository.item.ItemRepository;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.OptionalLong;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = "spring.datasource.generate-unique-name=true")
+@AutoConfigureWireMock(port = 0)
+public class ItemRepositoryIT {
+    private static final int PALLET_ID = 200;
+    private static final int TARGET_PALLET_ID = 201;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate template;
+
+    @Before
+    public void setUp() {
+        template.update("insert into pallets (palletId, accountId) values (:palletId, 1)",
+                Collections.singletonMap("palletId", PALLET_ID));
+        template.update("insert into pallets (palletId, accountId) values (:palletId, 1)",
+                Collections.singletonMap("palletId", TARGET_PALLET_ID));
+    }
+
+    @After
+    public void tearDown() {
+        template.update("delete from items where palletId = :palletId", Collections.singletonMap("palletId", PALLET_ID));
+        template.update("delete from pallets where palletId = :palletId", Collections.singletonMap("palletId", PALLET_ID));
+        template.update("delete from items where palletId = :palletId", Collections.singletonMap("palletId", TARGET_PALLET_ID));
+        template.update("delete from pallets where palletId = :palletId", Collections.singletonMap("palletId", TARGET_PALLET_ID));
+    }
+
+    @Test
+    public void saveItemsWithinWeight_ScenarioA() {
+        //arrange
+        List<ItemEntity> items = new ArrayList<>();
+        items.add(ItemEntity.builder().weight(1.5).product("crate").build());
+        items.add(ItemEntity.builder().weight(2.5).product("barrel").build());
+        items.add(ItemEntity.builder().weight(3.5).product("sack").build());
+
+        //act
+        OptionalLong actual = itemRepository.saveItemsWithinWeight(PALLET_ID, items, PalletDTO.MAX_WEIGHT);
+
+        //assert
+        Assert.assertThat(actual.getAsLong(), is(1L));
+        Assert.assertThat(items.get(0).getItemId() < items.get(1).getItemId(), is(true));
+        Assert.assertThat(items.get(1).getItemId() < items.get(2).getItemId(), is(true));
+        Assert.assertThat(itemRepository.getItemsByPalletId(PALLET_ID), is(equalTo(items)));
+    }
+
+    @Test
+    public void saveItemsWithinWeight_ScenarioB() {
+        //arrange
+        List<ItemEntity> items = new ArrayList<>();
+        items.add(ItemEntity.builder().weight(PalletDTO.MAX_WEIGHT).product("crate").build());
+        items.add(ItemEntity.builder().weight(0.5).product("barrel").build());
+
+        //act
+        OptionalLong actual = itemRepository.saveItemsWithinWeight(PALLET_ID, items, PalletDTO.MAX_WEIGHT);
+
+        //assert
+        Assert.assertThat(actual.isPresent(), is(false));
+        Assert.assertThat(itemRepository.getItemsByPalletId(PALLET_ID).isEmpty(), is(true));
+    }
+
+    @Test
+    public void applyItemChanges_ScenarioA() {
+        //arrange
+        ItemEntity item = ItemEntity.builder()
+                .palletId(PALLET_ID)
+                .weight(1.5)
+                .product("crate")
+                .build();
+        itemRepository.saveItemsWithinWeight(PALLET_ID, Collections.singletonList(item), PalletDTO.MAX_WEIGHT);
+        // the removal was buffered against the source, but the item has been moved since
+        itemRepository.moveItems(PALLET_ID, Collections.singletonMap(TARGET_PALLET_ID, Collections.singletonList(item)), PalletDTO.MAX_WEIGHT);
+
+        //act
+        ItemChangesEntity actual = itemRepository.applyItemChanges(Collections.emptyList(), Collections.singletonList(item), PalletDTO.MAX_WEIGHT);
+
+        //assert
+        Assert.assertThat(actual.getVersions().keySet(), is(equalTo(Collections.singleton(PALLET_ID))));
+        Assert.assertThat(itemRepository.getItemsByPalletId(TARGET_PALLET_ID).size(), is(1));
+    }
+
+    @Test
+    public void removeItemsFromPallet_ScenarioA() {
+        //arrange
+        List<ItemEntity> items = new ArrayList<>();
+        items.add(ItemEntity.builder().weight(1.5).product("crate").build());
+        items.add(ItemEntity.builder().weight(2.5).product("barrel").build());
+        long saved = itemRepository.saveItemsWithinWeight(PALLET_ID, items, PalletDTO.MAX_WEIGHT).getAsLong();
+
+        //act
+        ItemRemovalEntity actual = itemRepository.removeItemsFromPallet(PALLET_ID, Arrays.asList(items.get(0).getItemId(), -1));
+
+        //assert
+        Assert.assertThat(actual.getRemovedItemIds(), is(equalTo(Collections.singletonList(items.get(0).getItemId()))));
+        Assert.assertThat(actual.getVersion(), is(saved + 1));
+        Assert.assertThat(itemRepository.getItemsByPalletId(PALLET_ID), is(equalTo(Collections.singletonList(items.get(1)))));
+    }
+
+    @Test
+    public void moveItems_ScenarioA() {
+        //arrange
+        ItemEntity item = ItemEntity.builder()
+                .palletId(PALLET_ID)
+                .weight(1.5)
+                .product("crate")
+                .build();
+        itemRepository.saveItemsWithinWeight(PALLET_ID, Collections.singletonList(item), PalletDTO.MAX_WEIGHT);
+
+        //act
+        ItemMoveEntity actual = itemRepository.moveItems(PALLET_ID,
+                Collections.singletonMap(TARGET_PALLET_ID, Collections.singletonList(item)), PalletDTO.MAX_WEIGHT);
+
+        //assert
+        Assert.assertThat(actual.getVersions().keySet(), is(equalTo(new HashSet<>(Arrays.asList(PALLET_ID, TARGET_PALLET_ID)))));
+        Assert.assertThat(actual.getMovedItems(), is(1));
+        Assert.assertThat(actual.isEmptied(), is(true));
+        Assert.assertThat(itemRepository.getItemsByPalletId(PALLET_ID).isEmpty(), is(true));
+        Assert.assertThat(itemRepository.getItemsByPalletId(TARGET_PALLET_ID).get(0).getItemId(), is(item.getItemId()));
+    }
+
+    @Test
+    public void moveItems_ScenarioB() {
+        //arrange
+        ItemEntity item = ItemEntity.builder()
+                .palletId(PALLET_ID)
+                .weight(1.5)
+                .product("crate")
+                .build();
+        itemRepository.saveItemsWithinWeight(PALLET_ID, Collections.singletonList(item), PalletDTO.MAX_WEIGHT);
+        itemRepository.saveItemsWithinWeight(TARGET_PALLET_ID, Collections.singletonList(ItemEntity.builder()
+                .weight(PalletDTO.MAX_WEIGHT)
+                .product("anvil")
+                .build()), PalletDTO.MAX_WEIGHT);
+
+        //act
+        ItemMoveEntity actual = itemRepository.moveItems(PALLET_ID,
+                Collections.singletonMap(TARGET_PALLET_ID, Collections.singletonList(item)), PalletDTO.MAX_WEIGHT);
+
+        //assert
+        Assert.assertThat(actual.getVersions().isEmpty(), is(true));
+        Assert.assertThat(actual.getMovedItems(), is(0));
+        Assert.assertThat(actual.isEmptied(), is(false));
+        Assert.assertThat(itemRepository.getItemsByPalletId(PALLET_ID), is(equalTo(Collections.singletonList(item))));
+    }
+
+    @Test
+    public void moveItems_ScenarioC() {
+        //arrange
+        ItemEntity planned = ItemEntity.builder()
+                .palletId(PALLET_ID)
+                .weight(1.5)
+                .product("crate")
+                .build();
+        ItemEntity removed = ItemEntity.builder()
+                .palletId(PALLET_ID)
+                .weight(2.5)
+                .product("box")
+                .build();
+        itemRepository.saveItemsWithinWeight(PALLET_ID, Collections.singletonList(planned), PalletDTO.MAX_WEIGHT);
+        itemRepository.saveItemsWithinWeight(PALLET_ID, Collections.singletonList(removed), PalletDTO.MAX_WEIGHT);
+        itemRepository.removeItem(PALLET_ID, removed.getItemId());
+        // added after the move was planned, so it is not part of it
+        itemRepository.saveItemsWithinWeight(PALLET_ID, Collections.singletonList(ItemEntity.builder()
+                .weight(3.5)
+                .product("late")
+                .build()), PalletDTO.MAX_WEIGHT);
+
+        //act
+        ItemMoveEntity actual = itemRepository.moveItems(PALLET_ID,
+                Collections.singletonMap(TARGET_PALLET_ID, Arrays.asList(planned, removed)), PalletDTO.MAX_WEIGHT);
+
+        //assert
+        Assert.assertThat(actual.getVersions().keySet(), is(equalTo(new HashSet<>(Arrays.asList(PALLET_ID, TARGET_PALLET_ID)))));
+        Assert.assertThat(actual.getMovedItems(), is(1));
+        Assert.assertThat(actual.isEmptied(), is(false));
+        Assert.assertThat(itemRepository.getItemsByPalletId(PALLET_ID).size(), is(1));
+    }
+}
@@ -0,0 +1,93 @@
+package co.newlabs.integrationTests;
+
+import co.newlabs.dto.PalletDTO;
+import co.newlabs.repository.item.ItemEntity;
+import co.newlabs.repository.item.ItemRepository;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.is;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = "spring.datasource.generate-unique-name=true")
+@AutoConfigureWireMock(port = 0)
+public class PalletCapacityIT {
+    private static final int PALLET_ID = 100;
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 25;
+    private static final double ITEM_WEIGHT = 50d;
+
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @Autowired
+    private NamedParameterJdbcTemplate template;
+
+    @Before
+    public void setUp() {
+        template.update("insert into pallets (palletId, accountId) values (:palletId, 1)",
+                Collections.singletonMap("palletId", PALLET_ID));
+    }
+
+    @After
+    public void tearDown() {
+        template.update("delete from items where palletId = :palletId", Collections.singletonMap("palletId", PALLET_ID));
+        template.update("delete from pallets where palletId = :palletId", Collections.singletonMap("palletId", PALLET_ID));
+    }
+
+    @Test
+    public void saveItemsWithinWeight_ScenarioA() throws Exception {
+        //arrange
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    ItemEntity item = ItemEntity.builder()
+                            .weight(ITEM_WEIGHT)
+                            .product("crate")
+                            .build();
+                    if (itemRepository.saveItemsWithinWeight(PALLET_ID, Collections.singletonList(item), PalletDTO.MAX_WEIGHT).isPresent()) {
+                        accepted.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        //act
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        //assert
+        double actualWeight = itemRepository.getTotalWeightByPalletId(PALLET_ID);
+
+        Assert.assertThat(actualWeight <= PalletDTO.MAX_WEIGHT, is(true));
+        Assert.assertThat(actualWeight, is(accepted.get() * ITEM_WEIGHT));
+        Assert.assertThat(accepted.get(), is((int) (PalletDTO.MAX_WEIGHT / ITEM_WEIGHT)));
+    }
+}
@@ -0,0 +1,100 @@
+package co.newlabs.unitTests;
+
+import co.newlabs.planning.BinPacker;
+import co.newlabs.planning.PackingStrategy;
+import co.newlabs.planning.Packing;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.hamcrest.CoreMatchers.is;
+
+public class BinPackerTests {
+
+    @Test
+    public void pack_ScenarioA() {
+        //arrange
+        double[] weights = {2.0, 5.0, 4.0, 7.0, 1.0, 3.0};
+        double[] loads = {};
+
+        //act
+        Packing actual = BinPacker.pack(weights, loads, 10.0, PackingStrategy.FIRST_FIT, Integer.MAX_VALUE);
+
+        //assert
+        Assert.assertThat(actual.getBinCount(), is(3));
+        Assert.assertThat(actual.getBins(), is(new int[]{2, 1, 1, 0, 1, 0}));
+    }
+
+    @Test
+    public void pack_ScenarioB() {
+        //arrange
+        double[] weights = {3.0};
+        double[] loads = {5.0, 7.0, 8.0};
+
+        //act
+        Packing firstFit = BinPacker.pack(weights, loads, 10.0, PackingStrategy.FIRST_FIT, Integer.MAX_VALUE);
+        Packing bestFit = BinPacker.pack(weights, loads, 10.0, PackingStrategy.BEST_FIT, Integer.MAX_VALUE);
+
+        //assert
+        Assert.assertThat(firstFit.getBins()[0], is(0));
+        Assert.assertThat(bestFit.getBins()[0], is(1));
+        Assert.assertThat(bestFit.getBinCount(), is(3));
+    }
+
+    @Test
+    public void pack_ScenarioC() {
+        //arrange
+        double[] weights = {11.0, 4.0};
+        double[] loads = {8.0};
+
+        //act
+        Packing actual = BinPacker.pack(weights, loads, 10.0, PackingStrategy.BEST_FIT, Integer.MAX_VALUE);
+
+        //assert
+        Assert.assertThat(actual.getBins(), is(new int[]{BinPacker.UNPLACED, 1}));
+        Assert.assertThat(actual.getBinCount(), is(2));
+    }
+
+    @Test
+    public void pack_ScenarioD() {
+        //arrange
+        Random random = new Random(42);
+        double[] weights = new double[40000];
+        for (int item = 0; item < weights.length; item++) {
+            weights[item] = 1 + random.nextDouble() * 800;
+        }
+        double[] loads = new double[20];
+        for (int bin = 0; bin < loads.length; bin++) {
+            loads[bin] = random.nextDouble() * 4600;
+        }
+
+        for (PackingStrategy strategy : PackingStrategy.values()) {
+            //act
+            Packing sequential = BinPacker.pack(weights, loads, 4600, strategy, Integer.MAX_VALUE);
+            Packing parallel = BinPacker.pack(weights, loads, 4600, strategy, 1);
+
+            //assert
+            assertWithinCapacity(weights, loads, parallel, 4600);
+            assertWithinCapacity(weights, loads, sequential, 4600);
+            // each chunk may leave a partly filled bin behind besides the pooled last ones
+            Assert.assertThat(parallel.getBinCount() <= sequential.getBinCount() + ForkJoinPool.getCommonPoolParallelism(), is(true));
+        }
+    }
+
+    private static void assertWithinCapacity(double[] weights, double[] loads, Packing packing, double capacity) {
+        double[] packed = new double[packing.getBinCount()];
+        System.arraycopy(loads, 0, packed, 0, loads.length);
+        for (int item = 0; item < weights.length; item++) {
+            Assert.assertThat(packing.getBins()[item] >= 0, is(true));
+            packed[packing.getBins()[item]] += weights[item];
+        }
+        for (int bin = loads.length; bin < packed.length; bin++) {
+            Assert.assertThat(packed[bin] > 0, is(true));
+        }
+        for (double load : packed) {
+            Assert.assertThat(load <= capacity, is(true));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package co.newlabs.unitTests;
+
+import co.newlabs.client.CircuitBreaker;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+
+public class CircuitBreakerTests {
+
+    @Test
+    public void onFailure_ScenarioA() {
+        //arrange
+        CircuitBreaker systemUnderTest = new CircuitBreaker(10, 4, 0.5, 60000, 1);
+        systemUnderTest.onSuccess();
+        systemUnderTest.onSuccess();
+        systemUnderTest.onFailure();
+
+        //act
+        systemUnderTest.onFailure();
+
+        //assert
+        Assert.assertThat(systemUnderTest.getState(), is(CircuitBreaker.State.OPEN));
+        Assert.assertThat(systemUnderTest.tryAcquirePermission(), is(false));
+    }
+
+    @Test
+    public void onFailure_ScenarioB() {
+        //arrange
+        CircuitBreaker systemUnderTest = new CircuitBreaker(10, 4, 0.5, 60000, 1);
+        systemUnderTest.onFailure();
+        systemUnderTest.onFailure();
+
+        //act
+        systemUnderTest.onFailure();
+
+        //assert
+        Assert.assertThat(systemUnderTest.getState(), is(CircuitBreaker.State.CLOSED));
+        Assert.assertThat(systemUnderTest.tryAcquirePermission(), is(true));
+    }
+
+    @Test
+    public void tryAcquirePermission_ScenarioA() {
+        //arrange
+        CircuitBreaker systemUnderTest = new CircuitBreaker(2, 2, 0.5, 0, 2);
+        systemUnderTest.onFailure();
+        systemUnderTest.onFailure();
+
+        //act
+        boolean first = systemUnderTest.tryAcquirePermission();
+        boolean second = systemUnderTest.tryAcquirePermission();
+        boolean third = systemUnderTest.tryAcquirePermission();
+
+        //assert
+        Assert.assertThat(first, is(true));
+        Assert.assertThat(second, is(true));
+        Assert.assertThat(third, is(false));
+        Assert.assertThat(systemUnderTest.getState(), is(CircuitBreaker.State.HALF_OPEN));
+
+        systemUnderTest.onSuccess();
+        systemUnderTest.onSuccess();
+        Assert.assertThat(systemUnderTest.getState(), is(CircuitBreaker.State.CLOSED));
+    }
+
+    @Test
+    public void tryAcquirePermission_ScenarioB() {
+        //arrange
+        CircuitBreaker systemUnderTest = new CircuitBreaker(2, 2, 0.5, 0, 2);
+        systemUnderTest.onFailure();
+        systemUnderTest.onFailure();
+        systemUnderTest.tryAcquirePermission();
+
+        //act
+        systemUnderTest.onFailure();
+
+        //assert
+        Assert.assertThat(systemUnderTest.getState(), is(CircuitBreaker.State.OPEN));
+    }
+}
@@ -0,0 +1,68 @@
+package co.newlabs.unitTests;
+
+import co.newlabs.consolidation.ConsolidationPlanner;
+import co.newlabs.consolidation.PalletDrain;
+import co.newlabs.dto.PalletDTO;
+import co.newlabs.repository.item.ItemEntity;
+import co.newlabs.repository.pallet.PalletEntity;
+import co.newlabs.repository.pallet.PalletWeightEntity;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+
+public class ConsolidationPlannerTests {
+
+    @Test
+    public void plan_ScenarioA() {
+        //arrange
+        ItemEntity box = item(2, 2, 300d);
+        ItemEntity crate = item(3, 3, 150d);
+        ItemEntity sack = item(4, 3, 50d);
+        List<PalletWeightEntity> pallets = new ArrayList<>();
+        pallets.add(new PalletWeightEntity(1, 1, 4000d));
+        pallets.add(new PalletWeightEntity(2, 1, 300d));
+        pallets.add(new PalletWeightEntity(3, 1, 200d));
+        List<PalletEntity> sources = new ArrayList<>();
+        sources.add(pallet(2, box));
+        sources.add(pallet(3, crate, sack));
+
+        //act
+        List<PalletDrain> actual = ConsolidationPlanner.plan(pallets, sources, PalletDTO.MAX_WEIGHT);
+
+        //assert
+        Assert.assertThat(actual.size(), is(2));
+        Assert.assertThat(actual.get(0).getSourcePalletId(), is(3));
+        Assert.assertThat(actual.get(0).getItemsByTarget(), is(Collections.singletonMap(1, Arrays.asList(crate, sack))));
+        Assert.assertThat(actual.get(1).getSourcePalletId(), is(2));
+        Assert.assertThat(actual.get(1).getItemsByTarget(), is(Collections.singletonMap(1, Collections.singletonList(box))));
+    }
+
+    @Test
+    public void plan_ScenarioB() {
+        //arrange
+        List<PalletWeightEntity> pallets = new ArrayList<>();
+        pallets.add(new PalletWeightEntity(1, 1, 4500d));
+        pallets.add(new PalletWeightEntity(2, 1, 200d));
+        pallets.add(new PalletWeightEntity(3, 1, 0d));
+
+        //act
+        List<PalletDrain> actual = ConsolidationPlanner.plan(pallets, Collections.singletonList(pallet(2, item(2, 2, 200d))), PalletDTO.MAX_WEIGHT);
+
+        //assert
+        Assert.assertThat(actual.isEmpty(), is(true));
+    }
+
+    private static ItemEntity item(int itemId, int palletId, double weight) {
+        return ItemEntity.builder().itemId(itemId).palletId(palletId).weight(weight).product("stuff").build();
+    }
+
+    private static PalletEntity pallet(int palletId, ItemEntity... items) {
+        return PalletEntity.builder().palletId(palletId).accountId(1).items(Arrays.asList(items)).build();
+    }
+}
@@ -0,0 +1,77 @@
+package co.newlabs.unitTests;
+
+import co.newlabs.cache.ExpiringLruCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+
+public class ExpiringLruCacheTests {
+
+    @Test
+    public void get_ScenarioA() {
+        //arrange
+        ExpiringLruCache<Integer, String> systemUnderTest = new ExpiringLruCache<>(10, 60000);
+        systemUnderTest.put(1, "stuff");
+
+        //act
+        String hit = systemUnderTest.get(1);
+        String miss = systemUnderTest.get(2);
+
+        //assert
+        Assert.assertThat(hit, is("stuff"));
+        Assert.assertThat(miss, is(nullValue()));
+        Assert.assertThat(systemUnderTest.getHitCount(), is(1L));
+        Assert.assertThat(systemUnderTest.getMissCount(), is(1L));
+    }
+
+    @Test
+    public void get_ScenarioB() {
+        //arrange
+        ExpiringLruCache<Integer, String> systemUnderTest = new ExpiringLruCache<>(10, 0);
+        systemUnderTest.put(1, "stuff");
+
+        //act
+        String actual = systemUnderTest.get(1);
+
+        //assert
+        Assert.assertThat(actual, is(nullValue()));
+        Assert.assertThat(systemUnderTest.getEvictionCount(), is(1L));
+        Assert.assertThat(systemUnderTest.size(), is(0));
+    }
+
+    @Test
+    public void getStale_ScenarioA() {
+        //arrange
+        ExpiringLruCache<Integer, String> systemUnderTest = new ExpiringLruCache<>(10, 0);
+        systemUnderTest.put(1, "stuff");
+        systemUnderTest.get(1);
+
+        //act
+        String actual = systemUnderTest.getStale(1);
+
+        //assert
+        Assert.assertThat(actual, is("stuff"));
+        Assert.assertThat(systemUnderTest.getMissCount(), is(1L));
+        Assert.assertThat(systemUnderTest.size(), is(0));
+    }
+
+    @Test
+    public void put_ScenarioA() {
+        //arrange
+        ExpiringLruCache<Integer, String> systemUnderTest = new ExpiringLruCache<>(2, 60000);
+        systemUnderTest.put(1, "stuff");
+        systemUnderTest.put(2, "things");
+        systemUnderTest.get(1);
+
+        //act
+        systemUnderTest.put(3, "more things");
+
+        //assert
+        Assert.assertThat(systemUnderTest.get(1), is("stuff"));
+        Assert.assertThat(systemUnderTest.get(2), is(nullValue()));
+        Assert.assertThat(systemUnderTest.get(3), is("more things"));
+        Assert.assertThat(systemUnderTest.getEvictionCount(), is(1L));
+    }
+}
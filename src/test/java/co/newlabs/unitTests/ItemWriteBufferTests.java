@@ -0,0 +1,220 @@
+package co.newlabs.unitTests;
+
+import co.newlabs.cache.PalletCache;
+import co.newlabs.exception.PalletMaxWeightException;
+import co.newlabs.metrics.PalletMetrics;
+import co.newlabs.repository.item.ItemChangesEntity;
+import co.newlabs.repository.item.ItemEntity;
+import co.newlabs.repository.item.ItemRepository;
+import co.newlabs.repository.pallet.PalletEntity;
+import co.newlabs.repository.pallet.PalletRepository;
+import co.newlabs.writebehind.Durability;
+import co.newlabs.writebehind.ItemWriteBuffer;
+import co.newlabs.writebehind.PendingWrite;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ItemWriteBufferTests {
+
+    @Mock
+    private PalletRepository palletRepo;
+
+    @Mock
+    private ItemRepository itemRepo;
+
+    private ItemWriteBuffer systemUnderTest;
+    private ItemEntity onPallet;
+
+    @Before
+    public void setUp() {
+        systemUnderTest = new ItemWriteBuffer(palletRepo, itemRepo, new PalletCache(100, 60000), new PalletMetrics(new SimpleMeterRegistry()),
+                true, 16, 10, 1, Durability.COMMITTED);
+        systemUnderTest.start();
+
+        onPallet = ItemEntity.builder().itemId(1).palletId(1).weight(1.11).product("stuff").build();
+        List<ItemEntity> items = new ArrayList<>();
+        items.add(onPallet);
+
+        doReturn(PalletEntity.builder().palletId(1).accountId(1).build()).when(palletRepo).getPalletById(1);
+        doReturn(items).when(itemRepo).getItemsByPalletId(1);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        systemUnderTest.shutdown();
+    }
+
+    @Test
+    public void add_ScenarioA() throws Exception {
+        //arrange
+        ItemEntity item = ItemEntity.builder()
+                .palletId(1)
+                .weight(2.22)
+                .product("things")
+                .build();
+
+        doReturn(applied(Collections.singletonMap(1, 2L), Collections.emptySet())).when(itemRepo).applyItemChanges(anyList(), anyList(), anyDouble());
+
+        //act
+        PendingWrite actual = systemUnderTest.add(item, 4600d);
+        List<ItemEntity> committed = actual.getCommitted().get(5, TimeUnit.SECONDS);
+
+        //assert
+        Assert.assertThat(actual.isAccepted(), is(true));
+        Assert.assertThat(actual.getPallet().getItems(), is(Collections.singletonList(onPallet)));
+        Assert.assertThat(actual.getItems(), is(Collections.singletonList(item)));
+        Assert.assertThat(committed, is(Collections.singletonList(item)));
+
+        //verify
+        verify(itemRepo, times(1)).applyItemChanges(Collections.singletonList(item), Collections.emptyList(), 4600d);
+    }
+
+    @Test
+    public void add_ScenarioB() {
+        //arrange
+        ItemEntity item = ItemEntity.builder()
+                .palletId(1)
+                .weight(4600d)
+                .product("things")
+                .build();
+
+        //act
+        PendingWrite actual = systemUnderTest.add(item, 4600d);
+
+        //assert
+        Assert.assertThat(actual.isAccepted(), is(false));
+        Assert.assertThat(actual.getPallet().getItems().size(), is(1));
+        // nothing is pending for the pallet, so the rejection does not keep its state around
+        Assert.assertThat(systemUnderTest.add(item, 4600d).isAccepted(), is(false));
+
+        //verify
+        verify(itemRepo, never()).applyItemChanges(anyList(), anyList(), anyDouble());
+        verify(itemRepo, times(2)).getItemsByPalletId(1);
+    }
+
+    @Test
+    public void add_ScenarioC() throws Exception {
+        //arrange
+        ItemEntity item = ItemEntity.builder()
+                .palletId(1)
+                .weight(2.22)
+                .product("things")
+                .build();
+
+        // the recheck at group commit turned the pallet down
+        doReturn(applied(Collections.emptyMap(), Collections.singleton(1))).when(itemRepo).applyItemChanges(anyList(), anyList(), anyDouble());
+
+        //act
+        PendingWrite first = systemUnderTest.add(item, 4600d);
+        try {
+            first.getCommitted().get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException ex) {
+            Assert.assertThat(ex.getCause() instanceof PalletMaxWeightException, is(true));
+        }
+        PendingWrite actual = systemUnderTest.remove(1, 1);
+
+        //assert
+        Assert.assertThat(actual.isAccepted(), is(true));
+        Assert.assertThat(actual.getPallet().getItems(), is(Collections.singletonList(onPallet)));
+    }
+
+    @Test
+    public void add_ScenarioD() throws Exception {
+        //arrange
+        ItemEntity item = ItemEntity.builder()
+                .palletId(1)
+                .weight(2.22)
+                .product("things")
+                .build();
+
+        doThrow(new RuntimeException("database down")).when(itemRepo).applyItemChanges(anyList(), anyList(), anyDouble());
+
+        //act
+        PendingWrite first = systemUnderTest.add(item, 4600d);
+        try {
+            first.getCommitted().get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException ex) {
+            Assert.assertThat(ex.getCause().getMessage(), is("database down"));
+        }
+        PendingWrite actual = systemUnderTest.add(item, 4600d);
+
+        //assert
+        Assert.assertThat(actual.isAccepted(), is(true));
+        Assert.assertThat(actual.getPallet().getItems(), is(Collections.singletonList(onPallet)));
+
+        //verify
+        verify(itemRepo, times(2)).getItemsByPalletId(1);
+    }
+
+    @Test
+    public void remove_ScenarioA() throws Exception {
+        //arrange
+        doReturn(applied(Collections.singletonMap(1, 2L), Collections.emptySet())).when(itemRepo).applyItemChanges(anyList(), anyList(), anyDouble());
+
+        //act
+        PendingWrite actual = systemUnderTest.remove(1, 1);
+        List<ItemEntity> committed = actual.getCommitted().get(5, TimeUnit.SECONDS);
+
+        //assert
+        Assert.assertThat(actual.isAccepted(), is(true));
+        Assert.assertThat(actual.getPallet().getItems(), is(Collections.singletonList(onPallet)));
+        Assert.assertThat(committed, is(Collections.singletonList(onPallet)));
+
+        //verify
+        verify(itemRepo, times(1)).applyItemChanges(Collections.emptyList(), Collections.singletonList(onPallet), Double.MAX_VALUE);
+    }
+
+    @Test
+    public void remove_ScenarioC() throws Exception {
+        //arrange
+        // adds to the same pallet in the group went over the limit, the removal still applied
+        doReturn(applied(Collections.singletonMap(1, 2L), Collections.singleton(1))).when(itemRepo).applyItemChanges(anyList(), anyList(), anyDouble());
+
+        //act
+        PendingWrite actual = systemUnderTest.remove(1, 1);
+        List<ItemEntity> committed = actual.getCommitted().get(5, TimeUnit.SECONDS);
+
+        //assert
+        Assert.assertThat(actual.isAccepted(), is(true));
+        Assert.assertThat(committed, is(Collections.singletonList(onPallet)));
+    }
+
+    @Test
+    public void remove_ScenarioB() {
+        //act
+        PendingWrite actual = systemUnderTest.remove(1, 2);
+
+        //assert
+        Assert.assertThat(actual.isAccepted(), is(false));
+
+        //verify
+        verify(itemRepo, never()).applyItemChanges(anyList(), anyList(), anyDouble());
+    }
+
+    private static ItemChangesEntity applied(final Map<Integer, Long> versions, final Set<Integer> overweightPalletIds) {
+        return ItemChangesEntity.builder()
+                .versions(versions)
+                .overweightPalletIds(overweightPalletIds)
+                .build();
+    }
+}
@@ -0,0 +1,103 @@
+package co.newlabs.unitTests;
+
+import co.newlabs.dto.ItemDTO;
+import co.newlabs.dto.LoadPlanDTO;
+import co.newlabs.dto.LoadPlanRequestDTO;
+import co.newlabs.dto.PlannedPalletDTO;
+import co.newlabs.planning.PackingStrategy;
+import co.newlabs.repository.pallet.PalletRepository;
+import co.newlabs.repository.pallet.PalletWeightEntity;
+import co.newlabs.service.LoadPlanService;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class LoadPlanServiceTests {
+
+    @Mock
+    private PalletRepository palletRepo;
+
+    private LoadPlanService systemUnderTest;
+
+    @Before
+    public void setUp() {
+        systemUnderTest = new LoadPlanService(palletRepo, PackingStrategy.BEST_FIT, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void planLoad_ScenarioA() {
+        //arrange
+        List<Integer> palletIds = Arrays.asList(1, 2);
+        List<PalletWeightEntity> candidates = Arrays.asList(
+                PalletWeightEntity.builder().palletId(1).accountId(1).weight(4000d).build(),
+                PalletWeightEntity.builder().palletId(2).accountId(1).weight(1000d).build());
+
+        doReturn(candidates).when(palletRepo).getPalletWeights(1, palletIds);
+
+        ItemDTO small = ItemDTO.builder().product("stuff").weight(500d).build();
+        ItemDTO large = ItemDTO.builder().product("things").weight(3500d).build();
+        ItemDTO overflow = ItemDTO.builder().product("more things").weight(3000d).build();
+        ItemDTO tooHeavy = ItemDTO.builder().product("anvil").weight(5000d).build();
+
+        LoadPlanRequestDTO request = LoadPlanRequestDTO.builder()
+                .accountId(1)
+                .palletIds(palletIds)
+                .items(Arrays.asList(small, large, overflow, tooHeavy))
+                .build();
+
+        //act
+        LoadPlanDTO actual = systemUnderTest.planLoad(request);
+
+        //assert
+        LoadPlanDTO expected = LoadPlanDTO.builder()
+                .accountId(1)
+                .pallets(Arrays.asList(
+                        PlannedPalletDTO.builder().palletId(1).items(Collections.singletonList(small)).currentWeight(4500d).build(),
+                        PlannedPalletDTO.builder().palletId(2).items(Collections.singletonList(large)).currentWeight(4500d).build(),
+                        PlannedPalletDTO.builder().palletId(0).items(Collections.singletonList(overflow)).currentWeight(3000d).build()))
+                .newPallets(1)
+                .unplaced(Collections.singletonList(tooHeavy))
+                .build();
+
+        Assert.assertThat(actual, is(equalTo(expected)));
+
+        //verify
+        verify(palletRepo, times(1)).getPalletWeights(1, palletIds);
+        verifyNoMoreInteractions(palletRepo);
+    }
+
+    @Test
+    public void planLoad_ScenarioB() {
+        //arrange
+        doReturn(Collections.emptyList()).when(palletRepo).getPalletWeights(1, null);
+
+        LoadPlanRequestDTO request = LoadPlanRequestDTO.builder()
+                .accountId(1)
+                .items(Arrays.asList(
+                        ItemDTO.builder().product("stuff").weight(3000d).build(),
+                        ItemDTO.builder().product("things").weight(3000d).build()))
+                .strategy(PackingStrategy.FIRST_FIT)
+                .build();
+
+        //act
+        LoadPlanDTO actual = systemUnderTest.planLoad(request);
+
+        //assert
+        Assert.assertThat(actual.getNewPallets(), is(2));
+        Assert.assertThat(actual.getPallets().size(), is(2));
+        Assert.assertThat(actual.getPallets().get(0).getPalletId(), is(0));
+        Assert.assertThat(actual.getUnplaced().size(), is(0));
+    }
+}
@@ -0,0 +1,211 @@
+package co.newlabs.unitTests;
+
+import co.newlabs.cache.PalletCache;
+import co.newlabs.dto.ItemDTO;
+import co.newlabs.dto.PalletDTO;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+
+public class PalletCacheTests {
+    private final PalletCache systemUnderTest = new PalletCache(10, 60000);
+
+    private static PalletDTO pallet(final double... weights) {
+        List<ItemDTO> items = new ArrayList<>();
+        double total = 0d;
+        for (int i = 0; i < weights.length; i++) {
+            items.add(ItemDTO.builder().itemId(i + 1).weight(weights[i]).product("stuff").build());
+            total += weights[i];
+        }
+        return PalletDTO.builder()
+                .palletId(1)
+                .accountId(1)
+                .items(items)
+                .destination("home")
+                .currentWeight(total)
+                .build();
+    }
+
+    @Test
+    public void get_ScenarioA() {
+        //arrange
+        systemUnderTest.put(1, 1L, pallet(1.11));
+
+        //act
+        PalletDTO actual = systemUnderTest.get(1);
+        actual.getItems().clear();
+
+        //assert
+        Assert.assertThat(systemUnderTest.get(1), is(equalTo(pallet(1.11))));
+        Assert.assertThat(systemUnderTest.getHitCount(), is(2L));
+    }
+
+    @Test
+    public void put_ScenarioA() {
+        //arrange
+        systemUnderTest.put(1, 2L, pallet(1.11, 2.22));
+
+        //act
+        systemUnderTest.put(1, 1L, pallet(1.11));
+
+        //assert
+        Assert.assertThat(systemUnderTest.get(1), is(equalTo(pallet(1.11, 2.22))));
+    }
+
+    @Test
+    public void invalidate_ScenarioA() {
+        //arrange
+        systemUnderTest.put(1, 1L, pallet(1.11));
+
+        //act
+        systemUnderTest.invalidate(1, 2L);
+        systemUnderTest.put(1, 1L, pallet(1.11));
+
+        //assert
+        Assert.assertThat(systemUnderTest.get(1), is(nullValue()));
+        Assert.assertThat(systemUnderTest.getMissCount(), is(1L));
+    }
+
+    @Test
+    public void invalidate_ScenarioB() {
+        //arrange
+        systemUnderTest.invalidate(1, 2L);
+
+        //act
+        systemUnderTest.put(1, 2L, pallet(1.11, 2.22));
+
+        //assert
+        Assert.assertThat(systemUnderTest.get(1), is(equalTo(pallet(1.11, 2.22))));
+    }
+
+    @Test
+    public void update_ScenarioA() {
+        //arrange
+        systemUnderTest.put(1, 1L, pallet(1.11, 2.22));
+
+        //act
+        PalletDTO actual = systemUnderTest.update(1, 2L, pallet -> {
+            pallet.getItems().remove(1);
+            pallet.setCurrentWeight(1.11);
+            return pallet;
+        });
+
+        //assert
+        Assert.assertThat(actual, is(equalTo(pallet(1.11))));
+        Assert.assertThat(systemUnderTest.get(1), is(equalTo(pallet(1.11))));
+        Assert.assertThat(systemUnderTest.getVersion(1), is(OptionalLong.of(2L)));
+    }
+
+    @Test
+    public void update_ScenarioB() {
+        //arrange
+        systemUnderTest.put(1, 1L, pallet(1.11, 2.22));
+
+        //act
+        PalletDTO actual = systemUnderTest.update(1, 3L, pallet -> pallet);
+
+        //assert
+        Assert.assertThat(actual, is(nullValue()));
+        Assert.assertThat(systemUnderTest.get(1), is(nullValue()));
+        Assert.assertThat(systemUnderTest.getVersion(1), is(OptionalLong.empty()));
+    }
+
+    @Test
+    public void getVersion_ScenarioA() {
+        //arrange
+        systemUnderTest.put(1, 3L, pallet(1.11));
+
+        //act
+        OptionalLong actual = systemUnderTest.getVersion(1);
+
+        //assert
+        Assert.assertThat(actual, is(OptionalLong.of(3L)));
+    }
+
+    @Test
+    public void getVersion_ScenarioB() {
+        //arrange
+        systemUnderTest.put(1, 3L, pallet(1.11));
+        systemUnderTest.invalidate(1, 4L);
+
+        //act
+        OptionalLong actual = systemUnderTest.getVersion(1);
+
+        //assert
+        Assert.assertThat(actual, is(OptionalLong.empty()));
+    }
+
+    @Test(timeout = 5000)
+    public void load_ScenarioA() throws Exception {
+        //arrange
+        AtomicInteger loads = new AtomicInteger();
+        CompletableFuture<Void> loading = new CompletableFuture<>();
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        PalletDTO loaded = pallet(1.11);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        //act
+        Future<PalletDTO> leader = executor.submit(() -> systemUnderTest.load(1, () -> {
+            loads.incrementAndGet();
+            loading.complete(null);
+            release.join();
+            return loaded;
+        }));
+        loading.get();
+        Future<PalletDTO> follower = executor.submit(() -> systemUnderTest.load(1, () -> {
+            loads.incrementAndGet();
+            return pallet();
+        }));
+        while (systemUnderTest.getCollapsedLoadCount() == 0L) {
+            Thread.sleep(1);
+        }
+        release.complete(null);
+
+        //assert
+        Assert.assertThat(leader.get(), is(sameInstance(loaded)));
+        Assert.assertThat(follower.get(), is(equalTo(loaded)));
+        Assert.assertThat(follower.get(), is(not(sameInstance(loaded))));
+        Assert.assertThat(loads.get(), is(1));
+        executor.shutdown();
+    }
+
+    @Test(timeout = 5000)
+    public void load_ScenarioB() throws Exception {
+        //arrange
+        CompletableFuture<Void> loading = new CompletableFuture<>();
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        Future<PalletDTO> stale = executor.submit(() -> systemUnderTest.load(1, () -> {
+            loading.complete(null);
+            release.join();
+            return pallet(1.11);
+        }));
+        loading.get();
+
+        //act
+        systemUnderTest.invalidate(1, 2L);
+        PalletDTO actual = systemUnderTest.load(1, () -> pallet(1.11, 2.22));
+        release.complete(null);
+
+        //assert
+        Assert.assertThat(actual, is(equalTo(pallet(1.11, 2.22))));
+        Assert.assertThat(stale.get(), is(equalTo(pallet(1.11))));
+        Assert.assertThat(systemUnderTest.getCollapsedLoadCount(), is(0L));
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,160 @@
+package co.newlabs.unitTests;
+
+import co.newlabs.cache.PalletCache;
+import co.newlabs.consolidation.PalletConsolidationJob;
+import co.newlabs.dto.PalletDTO;
+import co.newlabs.metrics.PalletMetrics;
+import co.newlabs.repository.item.ItemEntity;
+import co.newlabs.repository.item.ItemMoveEntity;
+import co.newlabs.repository.item.ItemRepository;
+import co.newlabs.repository.pallet.PalletEntity;
+import co.newlabs.repository.pallet.PalletRepository;
+import co.newlabs.repository.pallet.PalletWeightEntity;
+import co.newlabs.writebehind.ItemWriteBuffer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PalletConsolidationJobTests {
+
+    @Mock
+    private PalletRepository palletRepo;
+
+    @Mock
+    private ItemRepository itemRepo;
+
+    @Mock
+    private PalletCache palletCache;
+
+    @Mock
+    private ItemWriteBuffer writeBuffer;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PalletConsolidationJob systemUnderTest;
+    private ItemEntity item;
+
+    @Before
+    public void setUp() {
+        systemUnderTest = new PalletConsolidationJob(palletRepo, itemRepo, palletCache, writeBuffer, new PalletMetrics(meterRegistry),
+                true, 0.5, 100, 0);
+        item = ItemEntity.builder().itemId(2).palletId(2).weight(300d).product("stuff").build();
+    }
+
+    @Test
+    public void consolidate_ScenarioA() {
+        //arrange
+        List<PalletWeightEntity> pallets = new ArrayList<>();
+        pallets.add(new PalletWeightEntity(1, 1, 4000d));
+        pallets.add(new PalletWeightEntity(2, 1, 300d));
+        Map<Integer, Long> versions = new HashMap<>();
+        versions.put(1, 5L);
+        versions.put(2, 3L);
+
+        doReturn(false).when(writeBuffer).isEnabled();
+        doReturn(Collections.singletonList(1)).when(palletRepo).getAccountsWithUnderFilledPallets(PalletDTO.MAX_WEIGHT / 2);
+        doReturn(pallets).when(palletRepo).getPalletWeights(1, null);
+        doReturn(Collections.singletonList(PalletEntity.builder().palletId(2).accountId(1).items(Collections.singletonList(item)).build()))
+                .when(palletRepo).getPalletsWithItems(Collections.singletonList(2));
+        doReturn(ItemMoveEntity.builder().versions(versions).movedItems(1).emptied(true).build())
+                .when(itemRepo).moveItems(2, Collections.singletonMap(1, Collections.singletonList(item)), PalletDTO.MAX_WEIGHT);
+
+        //act
+        int actual = systemUnderTest.consolidate();
+
+        //assert
+        Assert.assertThat(actual, is(1));
+        Assert.assertThat(meterRegistry.get("pallets.consolidation.drained").counter().count(), is(1d));
+        Assert.assertThat(meterRegistry.get("pallets.consolidation.items.moved").counter().count(), is(1d));
+
+        //verify
+        verify(palletCache, times(1)).invalidate(1, 5L);
+        verify(palletCache, times(1)).invalidate(2, 3L);
+    }
+
+    @Test
+    public void consolidate_ScenarioB() {
+        //arrange
+        List<PalletWeightEntity> pallets = new ArrayList<>();
+        pallets.add(new PalletWeightEntity(1, 1, 4000d));
+        pallets.add(new PalletWeightEntity(2, 1, 300d));
+
+        doReturn(false).when(writeBuffer).isEnabled();
+        doReturn(Collections.singletonList(1)).when(palletRepo).getAccountsWithUnderFilledPallets(PalletDTO.MAX_WEIGHT / 2);
+        doReturn(pallets).when(palletRepo).getPalletWeights(1, null);
+        doReturn(Collections.singletonList(PalletEntity.builder().palletId(2).accountId(1).items(Collections.singletonList(item)).build()))
+                .when(palletRepo).getPalletsWithItems(Collections.singletonList(2));
+        doReturn(ItemMoveEntity.builder().versions(Collections.emptyMap()).build())
+                .when(itemRepo).moveItems(2, Collections.singletonMap(1, Collections.singletonList(item)), PalletDTO.MAX_WEIGHT);
+
+        //act
+        int actual = systemUnderTest.consolidate();
+
+        //assert
+        Assert.assertThat(actual, is(0));
+
+        //verify
+        verifyNoInteractions(palletCache);
+    }
+
+    @Test
+    public void consolidate_ScenarioD() {
+        //arrange
+        List<PalletWeightEntity> pallets = new ArrayList<>();
+        pallets.add(new PalletWeightEntity(1, 1, 4000d));
+        pallets.add(new PalletWeightEntity(2, 1, 300d));
+        Map<Integer, Long> versions = new HashMap<>();
+        versions.put(1, 5L);
+        versions.put(2, 3L);
+
+        doReturn(false).when(writeBuffer).isEnabled();
+        doReturn(Collections.singletonList(1)).when(palletRepo).getAccountsWithUnderFilledPallets(PalletDTO.MAX_WEIGHT / 2);
+        doReturn(pallets).when(palletRepo).getPalletWeights(1, null);
+        doReturn(Collections.singletonList(PalletEntity.builder().palletId(2).accountId(1).items(Collections.singletonList(item)).build()))
+                .when(palletRepo).getPalletsWithItems(Collections.singletonList(2));
+        // an item was added to the source after the drain was planned
+        doReturn(ItemMoveEntity.builder().versions(versions).movedItems(1).emptied(false).build())
+                .when(itemRepo).moveItems(2, Collections.singletonMap(1, Collections.singletonList(item)), PalletDTO.MAX_WEIGHT);
+
+        //act
+        int actual = systemUnderTest.consolidate();
+
+        //assert
+        Assert.assertThat(actual, is(0));
+        Assert.assertThat(meterRegistry.get("pallets.consolidation.drained").counter().count(), is(0d));
+        Assert.assertThat(meterRegistry.get("pallets.consolidation.items.moved").counter().count(), is(1d));
+
+        //verify
+        verify(palletCache, times(1)).invalidate(1, 5L);
+        verify(palletCache, times(1)).invalidate(2, 3L);
+    }
+
+    @Test
+    public void consolidate_ScenarioC() {
+        //arrange
+        doReturn(true).when(writeBuffer).isEnabled();
+
+        //act
+        int actual = systemUnderTest.consolidate();
+
+        //assert
+        Assert.assertThat(actual, is(0));
+
+        //verify
+        verifyNoInteractions(palletRepo, itemRepo, palletCache);
+    }
+}
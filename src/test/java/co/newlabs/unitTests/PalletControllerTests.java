@@ -2,8 +2,16 @@ package co.newlabs.unitTests;
 
 import co.newlabs.controller.PalletController;
 import co.newlabs.dto.ItemDTO;
+import co.newlabs.dto.ItemRemovalDTO;
+import co.newlabs.dto.LoadPlanDTO;
+import co.newlabs.dto.LoadPlanRequestDTO;
 import co.newlabs.dto.PalletDTO;
+import co.newlabs.dto.PalletView;
+import co.newlabs.dto.PalletViewDTO;
+import co.newlabs.dto.PlannedPalletDTO;
+import co.newlabs.service.LoadPlanService;
 import co.newlabs.service.PalletService;
+import co.newlabs.writebehind.Durability;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Assert;
 import org.junit.Test;
@@ -17,11 +25,17 @@ import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -31,6 +45,9 @@ public class PalletControllerTests {
     @MockBean
     private PalletService service;
 
+    @MockBean
+    private LoadPlanService loadPlanService;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -45,7 +62,8 @@ public class PalletControllerTests {
                 .destination("home")
                 .build();
 
-        doReturn(expectedPallet).when(service).getPalletById(expectedPallet.getPalletId());
+        doReturn(3L).when(service).getPalletVersion(expectedPallet.getPalletId());
+        doReturn(expectedPallet).when(service).getPalletById(expectedPallet.getPalletId(), PalletView.FULL);
 
         String expectedResult = objectMapper.writeValueAsString(expectedPallet);
 
@@ -58,13 +76,248 @@ public class PalletControllerTests {
 
         //assert
 
+        Assert.assertThat(actualResult, is(equalTo(expectedResult)));
+        Assert.assertThat(actualResult.contains("\"items\":null"), is(true));
+        Assert.assertThat(result.getResponse().getHeader("ETag"), is("\"1-3\""));
+
+        //verify
+        verify(service, times(1)).getPalletVersion(1);
+        verify(service, times(1)).getPalletById(1, PalletView.FULL);
+        verifyNoMoreInteractions(service);
+    }
+
+    @Test
+    public void getPalletById_ScenarioB() throws Exception {
+        //arrange
+        doReturn(3L).when(service).getPalletVersion(1);
+
+        //act
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/pallet/1")
+                .header("If-None-Match", "\"1-3\""))
+                .andExpect(status().is(304))
+                .andReturn();
+
+        //assert
+        Assert.assertThat(result.getResponse().getContentAsString(), is(""));
+        Assert.assertThat(result.getResponse().getHeader("ETag"), is("\"1-3\""));
+
+        //verify
+        verify(service, times(1)).getPalletVersion(1);
+        verifyNoMoreInteractions(service);
+    }
+
+    @Test
+    public void getPalletById_ScenarioC() throws Exception {
+        //arrange
+        PalletDTO expectedPallet = PalletDTO.builder()
+                .palletId(1)
+                .destination("home")
+                .build();
+
+        doReturn(4L).when(service).getPalletVersion(1);
+        doReturn(expectedPallet).when(service).getPalletById(1, PalletView.FULL);
+
+        //act
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/pallet/1")
+                .header("If-None-Match", "\"1-3\""))
+                .andExpect(status().is(200))
+                .andReturn();
+
+        //assert
+        Assert.assertThat(result.getResponse().getContentAsString(), is(equalTo(objectMapper.writeValueAsString(expectedPallet))));
+        Assert.assertThat(result.getResponse().getHeader("ETag"), is("\"1-4\""));
+
+        //verify
+        verify(service, times(1)).getPalletVersion(1);
+        verify(service, times(1)).getPalletById(1, PalletView.FULL);
+        verifyNoMoreInteractions(service);
+    }
+
+    @Test
+    public void streamPalletById_ScenarioA() throws Exception {
+        //arrange
+        PalletDTO header = PalletDTO.builder()
+                .palletId(1)
+                .accountId(2)
+                .destination("home")
+                .build();
+        ItemDTO first = ItemDTO.builder().itemId(1).weight(1.5).product("stuff").build();
+        ItemDTO second = ItemDTO.builder().itemId(2).weight(2.5).product("things").build();
+
+        doReturn(header).when(service).getPalletHeaderById(1);
+        doAnswer(invocation -> {
+            Consumer<ItemDTO> consumer = invocation.getArgument(1);
+            consumer.accept(first);
+            consumer.accept(second);
+            return null;
+        }).when(service).streamItemsByPalletId(eq(1), any());
+
+        //act
+        MvcResult started = mockMvc.perform(MockMvcRequestBuilders.get("/pallet/1/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(started))
+                .andExpect(status().is(200))
+                .andReturn();
+
+        PalletDTO actual = objectMapper.readValue(result.getResponse().getContentAsString(), PalletDTO.class);
+
+        //assert
+        PalletDTO expected = PalletDTO.builder()
+                .palletId(1)
+                .accountId(2)
+                .destination("home")
+                .items(Arrays.asList(first, second))
+                .currentWeight(4d)
+                .build();
+
+        Assert.assertThat(actual, is(equalTo(expected)));
+        Assert.assertThat(result.getResponse().getContentType(), is("application/json"));
+
+        //verify
+        verify(service, times(1)).getPalletHeaderById(1);
+        verify(service, times(1)).streamItemsByPalletId(eq(1), any());
+        verifyNoMoreInteractions(service);
+    }
+
+    @Test
+    public void getPalletById_ScenarioD() throws Exception {
+        //arrange
+        PalletDTO expectedPallet = PalletDTO.builder()
+                .palletId(1)
+                .destination("home")
+                .currentWeight(1.11)
+                .build();
+
+        doReturn(3L).when(service).getPalletVersion(1);
+        doReturn(expectedPallet).when(service).getPalletById(1, PalletView.SUMMARY);
+
+        //act
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/pallet/1?view=summary"))
+                .andExpect(status().is(200))
+                .andReturn();
+
+        //assert
+        Assert.assertThat(result.getResponse().getContentAsString(), is(equalTo(objectMapper.writeValueAsString(PalletViewDTO.of(expectedPallet)))));
+        Assert.assertThat(result.getResponse().getContentAsString().contains("items"), is(false));
+        Assert.assertThat(result.getResponse().getHeader("ETag"), is("\"1-3-summary\""));
+
+        //verify
+        verify(service, times(1)).getPalletVersion(1);
+        verify(service, times(1)).getPalletById(1, PalletView.SUMMARY);
+        verifyNoMoreInteractions(service);
+    }
+
+    @Test
+    public void getPalletById_ScenarioE() throws Exception {
+        //act
+        mockMvc.perform(MockMvcRequestBuilders.get("/pallet/1?view=everything"))
+                .andExpect(status().is(400));
+
+        //verify
+        verifyNoInteractions(service);
+    }
+
+    @Test
+    public void getPalletById_ScenarioF() throws Exception {
+        //arrange
+        PalletDTO expectedPallet = PalletDTO.builder()
+                .palletId(1)
+                .destination(PalletDTO.UNRESOLVED_DESTINATION)
+                .build();
+
+        doReturn(3L).when(service).getPalletVersion(1);
+        doReturn(expectedPallet).when(service).getPalletById(1, PalletView.FULL);
+
+        //act
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/pallet/1"))
+                .andExpect(status().is(200))
+                .andReturn();
+
+        //assert
+        Assert.assertThat(result.getResponse().getContentAsString(), is(equalTo(objectMapper.writeValueAsString(expectedPallet))));
+        Assert.assertThat(result.getResponse().getHeader("Cache-Control"), is("no-store"));
+
+        //verify
+        verify(service, times(1)).getPalletVersion(1);
+        verify(service, times(1)).getPalletById(1, PalletView.FULL);
+        verifyNoMoreInteractions(service);
+    }
+
+    @Test
+    public void getPalletsByIds_ScenarioA() throws Exception {
+        //arrange
+        List<PalletDTO> expectedPallets = new ArrayList<>();
+        expectedPallets.add(PalletDTO.builder().palletId(1).destination("home").build());
+        expectedPallets.add(PalletDTO.builder().palletId(2).destination("home").build());
+
+        List<Integer> ids = new ArrayList<>();
+        ids.add(1);
+        ids.add(2);
+
+        doReturn(expectedPallets).when(service).getPalletsByIds(ids);
+
+        String expectedResult = objectMapper.writeValueAsString(expectedPallets);
+
+        //act
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/pallet").param("ids", "1,2"))
+                .andExpect(status().is(200))
+                .andReturn();
+
+        String actualResult = result.getResponse().getContentAsString();
+
+        //assert
         Assert.assertThat(actualResult, is(equalTo(expectedResult)));
 
         //verify
-        verify(service, times(1)).getPalletById(1);
+        verify(service, times(1)).getPalletsByIds(ids);
         verifyNoMoreInteractions(service);
     }
 
+    @Test
+    public void planLoad_ScenarioA() throws Exception {
+        //arrange
+        ItemDTO item = ItemDTO.builder()
+                .product("stuff")
+                .weight(1.11)
+                .build();
+
+        LoadPlanRequestDTO request = LoadPlanRequestDTO.builder()
+                .accountId(1)
+                .palletIds(Collections.singletonList(1))
+                .items(Collections.singletonList(item))
+                .build();
+
+        LoadPlanDTO plan = LoadPlanDTO.builder()
+                .accountId(1)
+                .pallets(Collections.singletonList(PlannedPalletDTO.builder()
+                        .palletId(1)
+                        .items(Collections.singletonList(item))
+                        .currentWeight(2.22)
+                        .build()))
+                .newPallets(0)
+                .unplaced(Collections.emptyList())
+                .build();
+
+        doReturn(plan).when(loadPlanService).planLoad(request);
+
+        //act
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/pallet/plan")
+                .content(objectMapper.writeValueAsString(request))
+                .contentType("application/json"))
+                .andExpect(status().is(200))
+                .andReturn();
+
+        //assert
+        Assert.assertThat(result.getResponse().getContentAsString(), is(equalTo(objectMapper.writeValueAsString(plan))));
+
+        //verify
+        verify(loadPlanService, times(1)).planLoad(request);
+        verifyNoMoreInteractions(loadPlanService);
+        verifyNoInteractions(service);
+    }
+
     @Test
     public void addItemToPallet_ScenarioA() throws Exception {
         //arrange
@@ -85,7 +338,7 @@ public class PalletControllerTests {
                 .accountId(1)
                 .build();
 
-        doReturn(mockPallet).when(service).addItemToPallet(mockItem, mockPallet.getPalletId());
+        doReturn(mockPallet).when(service).addItemToPallet(mockItem, mockPallet.getPalletId(), null);
 
         String requestBody = objectMapper.writeValueAsString(mockItem);
 
@@ -103,7 +356,80 @@ public class PalletControllerTests {
 
         //verify
 
-        verify(service, times(1)).addItemToPallet(mockItem, mockPallet.getPalletId());
+        verify(service, times(1)).addItemToPallet(mockItem, mockPallet.getPalletId(), null);
+        verifyNoMoreInteractions(service);
+    }
+
+    @Test
+    public void addItemToPallet_ScenarioB() throws Exception {
+        //arrange
+        ItemDTO mockItem = ItemDTO.builder()
+                .product("stuff")
+                .weight(1.11)
+                .build();
+
+        PalletDTO mockPallet = PalletDTO.builder()
+                .palletId(1)
+                .items(Collections.singletonList(mockItem))
+                .destination("home")
+                .currentWeight(1.11)
+                .accountId(1)
+                .build();
+
+        doReturn(mockPallet).when(service).addItemToPallet(mockItem, mockPallet.getPalletId(), Durability.BUFFERED);
+
+        String requestBody = objectMapper.writeValueAsString(mockItem);
+
+        //act
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/pallet/1/add?durability=BUFFERED").content(requestBody).contentType("application/json"))
+                .andExpect(status().is(200))
+                .andReturn();
+
+        String actualResult = result.getResponse().getContentAsString();
+
+        String expectedResult = objectMapper.writeValueAsString(mockPallet);
+
+        //assert
+        Assert.assertThat(actualResult, is(equalTo(expectedResult)));
+
+        //verify
+        verify(service, times(1)).addItemToPallet(mockItem, mockPallet.getPalletId(), Durability.BUFFERED);
+        verifyNoMoreInteractions(service);
+    }
+
+    @Test
+    public void addItemsToPallet_ScenarioA() throws Exception {
+        //arrange
+        List<ItemDTO> mockItems = new ArrayList<>();
+        mockItems.add(ItemDTO.builder().itemId(1).product("stuff").weight(1.11).build());
+        mockItems.add(ItemDTO.builder().itemId(2).product("things").weight(2.22).build());
+
+        PalletDTO mockPallet = PalletDTO.builder()
+                .palletId(1)
+                .items(mockItems)
+                .destination("home")
+                .currentWeight(3.33)
+                .accountId(1)
+                .build();
+
+        doReturn(mockPallet).when(service).addItemsToPallet(mockItems, mockPallet.getPalletId());
+
+        String requestBody = objectMapper.writeValueAsString(mockItems);
+
+        //act
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/pallet/1/items").content(requestBody).contentType("application/json"))
+                .andExpect(status().is(200))
+                .andReturn();
+
+        String actualResult = result.getResponse().getContentAsString();
+
+        String expectedResult = objectMapper.writeValueAsString(mockPallet);
+
+        //assert
+        Assert.assertThat(actualResult, is(equalTo(expectedResult)));
+
+        //verify
+        verify(service, times(1)).addItemsToPallet(mockItems, mockPallet.getPalletId());
         verifyNoMoreInteractions(service);
     }
 
@@ -119,7 +445,7 @@ public class PalletControllerTests {
                 .itemId(1)
                 .build();
 
-        doReturn(expectedPallet).when(service).removeItemFromPallet(mockItem.getItemId(), expectedPallet.getPalletId());
+        doReturn(expectedPallet).when(service).removeItemFromPallet(mockItem.getItemId(), expectedPallet.getPalletId(), null);
 
         //act
         MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/pallet/1/remove/1"))
@@ -135,6 +461,39 @@ public class PalletControllerTests {
 
         //verify
 
-        verify(service, times(1)).removeItemFromPallet(mockItem.getItemId(), expectedPallet.getPalletId());
+        verify(service, times(1)).removeItemFromPallet(mockItem.getItemId(), expectedPallet.getPalletId(), null);
+    }
+
+    @Test
+    public void removeItemsFromPallet_ScenarioA() throws Exception {
+        //arrange
+        Set<Integer> itemIds = new LinkedHashSet<>();
+        itemIds.add(1);
+        itemIds.add(2);
+
+        ItemRemovalDTO expectedRemoval = ItemRemovalDTO.builder()
+                .palletId(1)
+                .removedItemIds(Collections.singletonList(1))
+                .notOnPalletItemIds(Collections.singletonList(2))
+                .build();
+
+        doReturn(expectedRemoval).when(service).removeItemsFromPallet(itemIds, 1);
+
+        //act
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.post("/pallet/1/items/remove")
+                .content(objectMapper.writeValueAsString(itemIds))
+                .contentType("application/json"))
+                .andExpect(status().is(200))
+                .andReturn();
+
+        String actualResult = result.getResponse().getContentAsString();
+        String expectedResult = objectMapper.writeValueAsString(expectedRemoval);
+
+        //assert
+        Assert.assertThat(actualResult, is(equalTo(expectedResult)));
+
+        //verify
+        verify(service, times(1)).removeItemsFromPallet(itemIds, 1);
+        verifyNoMoreInteractions(service);
     }
 }
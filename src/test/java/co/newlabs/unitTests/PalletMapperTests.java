@@ -0,0 +1,73 @@
+package co.newlabs.unitTests;
+
+import co.newlabs.dto.ItemDTO;
+import co.newlabs.dto.PalletDTO;
+import co.newlabs.mapper.PalletMapper;
+import co.newlabs.repository.item.ItemEntity;
+import co.newlabs.repository.pallet.PalletEntity;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+
+public class PalletMapperTests {
+    private final PalletMapper systemUnderTest = new PalletMapper();
+
+    @Test
+    public void toPalletDTO_ScenarioA() {
+        //arrange
+        PalletEntity entity = PalletEntity.builder()
+                .palletId(1)
+                .accountId(2)
+                .items(Collections.singletonList(ItemEntity.builder().itemId(1).build()))
+                .build();
+
+        //act
+        PalletDTO actual = systemUnderTest.toPalletDTO(entity);
+
+        //assert
+        PalletDTO expected = PalletDTO.builder()
+                .palletId(1)
+                .accountId(2)
+                .build();
+
+        Assert.assertThat(actual, is(equalTo(expected)));
+    }
+
+    @Test
+    public void toItemDTOs_ScenarioA() {
+        //arrange
+        List<ItemEntity> entities = new ArrayList<>();
+        entities.add(ItemEntity.builder().itemId(1).palletId(1).weight(1.11).product("stuff").build());
+        entities.add(ItemEntity.builder().itemId(2).palletId(1).weight(2.22).product("things").build());
+
+        //act
+        List<ItemDTO> actual = systemUnderTest.toItemDTOs(entities);
+
+        //assert
+        List<ItemDTO> expected = new ArrayList<>();
+        expected.add(ItemDTO.builder().itemId(1).weight(1.11).product("stuff").build());
+        expected.add(ItemDTO.builder().itemId(2).weight(2.22).product("things").build());
+
+        Assert.assertThat(actual, is(equalTo(expected)));
+    }
+
+    @Test
+    public void toItemEntity_ScenarioA() {
+        //arrange
+        ItemDTO item = ItemDTO.builder().itemId(1).weight(1.11).product("stuff").build();
+
+        //act
+        ItemEntity actual = systemUnderTest.toItemEntity(item);
+
+        //assert
+        ItemEntity expected = ItemEntity.builder().itemId(1).weight(1.11).product("stuff").build();
+
+        Assert.assertThat(actual, is(equalTo(expected)));
+    }
+}
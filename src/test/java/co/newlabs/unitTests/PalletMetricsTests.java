@@ -0,0 +1,92 @@
+package co.newlabs.unitTests;
+
+import co.newlabs.metrics.PalletMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+
+public class PalletMetricsTests {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PalletMetrics systemUnderTest = new PalletMetrics(meterRegistry);
+
+    @Test
+    public void recordItemsPerPallet_ScenarioA() {
+        //act
+        systemUnderTest.recordItemsPerPallet(2);
+        systemUnderTest.recordItemsPerPallet(4);
+
+        //assert
+        Assert.assertThat(meterRegistry.get("pallet.items").summary().count(), is(2L));
+        Assert.assertThat(meterRegistry.get("pallet.items").summary().totalAmount(), is(6d));
+    }
+
+    @Test
+    public void recordRejections_ScenarioA() {
+        //act
+        systemUnderTest.recordMaxWeightExceeded();
+        systemUnderTest.recordMaxWeightExceeded();
+        systemUnderTest.recordItemNotOnPallet();
+
+        //assert
+        Assert.assertThat(meterRegistry.get("pallet.rejections").tag("exception", "PalletMaxWeightException").counter().count(), is(2d));
+        Assert.assertThat(meterRegistry.get("pallet.rejections").tag("exception", "ItemNotOnPalletException").counter().count(), is(1d));
+    }
+
+    @Test
+    public void recordPalletDrained_ScenarioA() {
+        //act
+        systemUnderTest.recordPalletDrained(3);
+        systemUnderTest.recordPalletDrained(2);
+
+        //assert
+        Assert.assertThat(meterRegistry.get("pallets.consolidation.drained").counter().count(), is(2d));
+        Assert.assertThat(meterRegistry.get("pallets.consolidation.items.moved").counter().count(), is(5d));
+    }
+
+    @Test
+    public void recordItemsMoved_ScenarioA() {
+        //act
+        systemUnderTest.recordItemsMoved(3);
+
+        //assert
+        Assert.assertThat(meterRegistry.get("pallets.consolidation.drained").counter().count(), is(0d));
+        Assert.assertThat(meterRegistry.get("pallets.consolidation.items.moved").counter().count(), is(3d));
+    }
+
+    @Test
+    public void recordAccountCall_ScenarioA() {
+        //act
+        systemUnderTest.recordAccountCall("active", "not_found", TimeUnit.MILLISECONDS.toNanos(5));
+        systemUnderTest.recordAccountCall("warehouse", "success", TimeUnit.MILLISECONDS.toNanos(7));
+
+        //assert
+        Assert.assertThat(meterRegistry.get("accounts.request").tag("source", "active").tag("outcome", "not_found").timer().count(), is(1L));
+        Assert.assertThat(meterRegistry.get("accounts.request").tag("source", "warehouse").tag("outcome", "success").timer().totalTime(TimeUnit.MILLISECONDS), is(7d));
+    }
+
+    @Test
+    public void recordAccountFallback_ScenarioA() {
+        //act
+        systemUnderTest.recordAccountFallback("stale");
+        systemUnderTest.recordAccountFallback("stale");
+
+        //assert
+        Assert.assertThat(meterRegistry.get("accounts.fallback").tag("result", "stale").counter().count(), is(2d));
+        Assert.assertThat(meterRegistry.get("accounts.fallback").tag("result", "unavailable").counter().count(), is(0d));
+    }
+
+    @Test
+    public void queryTimer_ScenarioA() {
+        //act
+        int actual = systemUnderTest.queryTimer("items", "getItemsByPalletId").record(() -> 1);
+
+        //assert
+        Assert.assertThat(actual, is(1));
+        Assert.assertThat(meterRegistry.get("repository.query").tag("query", "getItemsByPalletId").timer().count(), is(1L));
+    }
+}
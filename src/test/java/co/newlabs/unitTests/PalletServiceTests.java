@@ -1,30 +1,50 @@
 package co.newlabs.unitTests;
 
+import co.newlabs.cache.PalletCache;
 import co.newlabs.client.account.AccountClient;
 import co.newlabs.client.account.AccountDTO;
 import co.newlabs.dto.ItemDTO;
+import co.newlabs.dto.ItemRemovalDTO;
 import co.newlabs.dto.PalletDTO;
+import co.newlabs.dto.PalletView;
 import co.newlabs.exception.AccountAccessException;
 import co.newlabs.exception.ItemNotOnPalletException;
 import co.newlabs.exception.PalletMaxWeightException;
+import co.newlabs.mapper.PalletMapper;
+import co.newlabs.metrics.PalletMetrics;
 import co.newlabs.repository.item.ItemEntity;
+import co.newlabs.repository.item.ItemRemovalEntity;
 import co.newlabs.repository.item.ItemRepository;
 import co.newlabs.repository.pallet.PalletEntity;
 import co.newlabs.repository.pallet.PalletRepository;
 import co.newlabs.service.PalletService;
-import ma.glasnost.orika.MapperFacade;
+import co.newlabs.writebehind.Durability;
+import co.newlabs.writebehind.ItemWriteBuffer;
+import co.newlabs.writebehind.PendingWrite;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -37,11 +57,20 @@ public class PalletServiceTests {
     private PalletRepository palletRepo;
 
     @Mock
-    private MapperFacade mapper;
+    private PalletMapper mapper;
 
     @Mock
     private AccountClient accountClient;
 
+    @Mock
+    private PalletMetrics metrics;
+
+    @Mock
+    private ItemWriteBuffer writeBuffer;
+
+    @Mock
+    private PalletCache palletCache;
+
     @InjectMocks
     private PalletService systemUnderTest;
 
@@ -67,7 +96,7 @@ public class PalletServiceTests {
         List<ItemDTO> itemDTOS = new ArrayList<>();
         itemDTOS.add(itemDTO);
 
-        doReturn(itemDTOS).when(mapper).mapAsList(itemEntities, ItemDTO.class);
+        doReturn(itemDTOS).when(mapper).toItemDTOs(itemEntities);
 
         PalletEntity palletEntity = PalletEntity.builder()
                 .palletId(1)
@@ -88,12 +117,13 @@ public class PalletServiceTests {
                 .accountId(1)
                 .build();
 
-        doReturn(palletDTO).when(mapper).map(palletEntity, PalletDTO.class);
+        doReturn(palletDTO).when(mapper).toPalletDTO(palletEntity);
 
 
         doReturn(palletEntity).when(palletRepo).getPalletById(palletEntity.getPalletId());
         doReturn(itemEntities).when(itemRepo).getItemsByPalletId(palletEntity.getPalletId());
-        doReturn(accountDTO).when(accountClient).getAccountDetailsById(palletEntity.getPalletId());
+        doReturn(CompletableFuture.completedFuture(accountDTO)).when(accountClient).getAccountDetailsByIdAsync(palletEntity.getPalletId());
+        doAnswer(invocation -> invocation.<Supplier<PalletDTO>>getArgument(1).get()).when(palletCache).load(eq(1), any());
 
         //act
         PalletDTO actualPallet = systemUnderTest.getPalletById(palletEntity.getPalletId());
@@ -110,11 +140,85 @@ public class PalletServiceTests {
         verifyNoMoreInteractions(itemRepo);
         verify(palletRepo, times(1)).getPalletById(1);
         verifyNoMoreInteractions(palletRepo);
-        verify(accountClient, times(1)).getAccountDetailsById(1);
+        verify(accountClient, times(1)).getAccountDetailsByIdAsync(1);
         verifyNoMoreInteractions(accountClient);
-        verify(mapper, times(1)).mapAsList(itemEntities, ItemDTO.class);
-        verify(mapper, times(1)).map(palletEntity, PalletDTO.class);
+        verify(mapper, times(1)).toItemDTOs(itemEntities);
+        verify(mapper, times(1)).toPalletDTO(palletEntity);
         verifyNoMoreInteractions(mapper);
+        verify(metrics, times(1)).recordItemsPerPallet(1);
+        verifyNoMoreInteractions(metrics);
+        verify(palletCache, times(1)).load(eq(1), any());
+    }
+
+    @Test
+    public void getPalletHeaderById_ScenarioA() {
+        //arrange
+        PalletEntity palletEntity = PalletEntity.builder()
+                .palletId(1)
+                .accountId(1)
+                .build();
+
+        AccountDTO accountDTO = AccountDTO.builder()
+                .accountId(1)
+                .address("123 Fake st.")
+                .city("Townsville")
+                .state("Statesoda")
+                .zip("12345")
+                .build();
+
+        doReturn(palletEntity).when(palletRepo).getPalletById(1);
+        doReturn(PalletDTO.builder().palletId(1).accountId(1).build()).when(mapper).toPalletDTO(palletEntity);
+        doReturn(CompletableFuture.completedFuture(accountDTO)).when(accountClient).getAccountDetailsByIdAsync(1);
+
+        //act
+        PalletDTO actual = systemUnderTest.getPalletHeaderById(1);
+
+        //assert
+        PalletDTO expected = PalletDTO.builder()
+                .palletId(1)
+                .accountId(1)
+                .destination("123 Fake st. Townsville, Statesoda 12345")
+                .build();
+
+        Assert.assertThat(actual, is(equalTo(expected)));
+
+        //verify
+        verify(writeBuffer, times(1)).awaitPallet(1);
+        verifyNoInteractions(itemRepo);
+        verifyNoInteractions(palletCache);
+    }
+
+    @Test
+    public void streamItemsByPalletId_ScenarioA() {
+        //arrange
+        ItemEntity first = ItemEntity.builder().itemId(1).palletId(1).weight(1.11).product("stuff").build();
+        ItemEntity second = ItemEntity.builder().itemId(2).palletId(1).weight(2.22).product("things").build();
+        ItemDTO firstDTO = ItemDTO.builder().itemId(1).weight(1.11).product("stuff").build();
+        ItemDTO secondDTO = ItemDTO.builder().itemId(2).weight(2.22).product("things").build();
+
+        doReturn(firstDTO).when(mapper).toItemDTO(first);
+        doReturn(secondDTO).when(mapper).toItemDTO(second);
+        doAnswer(invocation -> {
+            Consumer<ItemEntity> consumer = invocation.getArgument(1);
+            consumer.accept(first);
+            consumer.accept(second);
+            return null;
+        }).when(itemRepo).streamItemsByPalletId(eq(1), any());
+
+        List<ItemDTO> actual = new ArrayList<>();
+
+        //act
+        systemUnderTest.streamItemsByPalletId(1, actual::add);
+
+        //assert
+        Assert.assertThat(actual, is(Arrays.asList(firstDTO, secondDTO)));
+
+        //verify
+        verify(itemRepo, times(1)).streamItemsByPalletId(eq(1), any());
+        verify(itemRepo, never()).getItemsByPalletId(anyInt());
+        verify(metrics, times(1)).recordItemsPerPallet(2);
+        verifyNoInteractions(palletRepo);
+        verifyNoInteractions(palletCache);
     }
 
     @Test
@@ -139,7 +243,7 @@ public class PalletServiceTests {
         List<ItemDTO> itemDTOS = new ArrayList<>();
         itemDTOS.add(itemDTO);
 
-        doReturn(itemDTOS).when(mapper).mapAsList(itemEntities, ItemDTO.class);
+        doReturn(itemDTOS).when(mapper).toItemDTOs(itemEntities);
 
         PalletEntity palletEntity = PalletEntity.builder()
                 .palletId(1)
@@ -151,12 +255,13 @@ public class PalletServiceTests {
                 .accountId(1)
                 .build();
 
-        doReturn(palletDTO).when(mapper).map(palletEntity, PalletDTO.class);
+        doReturn(palletDTO).when(mapper).toPalletDTO(palletEntity);
 
 
         doReturn(palletEntity).when(palletRepo).getPalletById(palletEntity.getPalletId());
         doReturn(itemEntities).when(itemRepo).getItemsByPalletId(palletEntity.getPalletId());
-        doThrow(AccountAccessException.class).when(accountClient).getAccountDetailsById(1);
+        doReturn(failedAccountLookup()).when(accountClient).getAccountDetailsByIdAsync(1);
+        doAnswer(invocation -> invocation.<Supplier<PalletDTO>>getArgument(1).get()).when(palletCache).load(eq(1), any());
 
         //act
         ItemDTO expectedItem = ItemDTO.builder()
@@ -180,81 +285,247 @@ public class PalletServiceTests {
 
         //assert
         Assert.assertThat(actual, is(equalTo(expectedPallet)));
+        Assert.assertThat(actual.isDestinationUnresolved(), is(true));
+
         //verify
+        verify(palletCache, never()).put(anyInt(), anyLong(), any());
     }
 
     @Test
-    public void addItemToTest_ScenarioA() {
+    public void getPalletById_ScenarioC() {
         //arrange
-        ItemDTO returnItem = ItemDTO.builder()
-                .weight(1.11)
-                .product("stuff: Boogaloo Unplugged")
-                .itemId(1)
+        PalletDTO cachedPallet = PalletDTO.builder()
+                .palletId(1)
+                .accountId(1)
+                .items(new ArrayList<>())
+                .destination("123 Fake st. Townsville, Statesoda 12345")
                 .build();
 
-        List<ItemDTO> returnItems = new ArrayList<>();
-        returnItems.add(returnItem);
+        doReturn(cachedPallet).when(palletCache).get(1);
+
+        //act
+        PalletDTO actual = systemUnderTest.getPalletById(1);
+
+        //assert
+        Assert.assertThat(actual, is(equalTo(cachedPallet)));
+
+        //verify
+        verifyNoInteractions(palletRepo);
+        verifyNoInteractions(itemRepo);
+        verifyNoInteractions(accountClient);
+        verifyNoInteractions(mapper);
+    }
 
-        PalletDTO returnPallet = PalletDTO.builder()
+    @Test
+    public void getPalletById_ScenarioD() {
+        //arrange
+        PalletEntity palletEntity = PalletEntity.builder()
                 .palletId(1)
                 .accountId(1)
-                .destination("123 fake st Townsville, Statesoda 12345")
-                .currentWeight(1.11)
-                .items(returnItems)
                 .build();
 
-        AccountDTO returnAccount = AccountDTO.builder()
-                .accountName("someCorp")
-                .state("Statesoda")
-                .city("Townsville")
-                .address("123 fake st")
+        AccountDTO accountDTO = AccountDTO.builder()
                 .accountId(1)
+                .address("123 Fake st.")
+                .city("Townsville")
+                .state("Statesoda")
                 .zip("12345")
                 .build();
 
-        doReturn(returnAccount).when(accountClient).getAccountDetailsById(returnPallet.getPalletId());
+        doReturn(palletEntity).when(palletRepo).getPalletById(1);
+        doReturn(PalletDTO.builder().palletId(1).accountId(1).build()).when(mapper).toPalletDTO(palletEntity);
+        doReturn(3.33).when(itemRepo).getTotalWeightByPalletId(1);
+        doReturn(CompletableFuture.completedFuture(accountDTO)).when(accountClient).getAccountDetailsByIdAsync(1);
 
-        PalletEntity palletEntity = PalletEntity.builder()
+        //act
+        PalletDTO actual = systemUnderTest.getPalletById(1, PalletView.SUMMARY);
+
+        //assert
+        PalletDTO expected = PalletDTO.builder()
                 .palletId(1)
                 .accountId(1)
+                .currentWeight(3.33)
+                .destination("123 Fake st. Townsville, Statesoda 12345")
                 .build();
 
-        ItemEntity itemEntity = ItemEntity.builder()
-                .itemId(1)
-                .product("stuff: Boogaloo Unplugged")
-                .weight(1.11)
+        Assert.assertThat(actual, is(equalTo(expected)));
+
+        //verify
+        verify(itemRepo, times(1)).getTotalWeightByPalletId(1);
+        verifyNoMoreInteractions(itemRepo);
+        verify(mapper, times(1)).toPalletDTO(palletEntity);
+        verifyNoMoreInteractions(mapper);
+        verify(palletCache, times(1)).get(1);
+        verifyNoMoreInteractions(palletCache);
+    }
+
+    @Test
+    public void getPalletById_ScenarioE() {
+        //arrange
+        List<ItemEntity> itemEntities = Collections.singletonList(ItemEntity.builder().itemId(1).palletId(1).weight(1.11).product("stuff").build());
+        List<ItemDTO> itemDTOs = Collections.singletonList(ItemDTO.builder().itemId(1).weight(1.11).product("stuff").build());
+
+        PalletEntity palletEntity = PalletEntity.builder()
                 .palletId(1)
+                .accountId(1)
                 .build();
 
-        List<ItemEntity> itemEntities = new ArrayList<>();
-        itemEntities.add(itemEntity);
+        doReturn(palletEntity).when(palletRepo).getPalletById(1);
+        doReturn(itemEntities).when(itemRepo).getItemsByPalletId(1);
+        doReturn(PalletDTO.builder().palletId(1).accountId(1).build()).when(mapper).toPalletDTO(palletEntity);
+        doReturn(itemDTOs).when(mapper).toItemDTOs(itemEntities);
 
-        doReturn(palletEntity).when(palletRepo).getPalletById(returnPallet.getPalletId());
-        doReturn(itemEntities).when(itemRepo).getItemsByPalletId(returnPallet.getPalletId());
+        //act
+        PalletDTO actual = systemUnderTest.getPalletById(1, PalletView.ITEMS);
 
-        PalletDTO mappedPallet = PalletDTO.builder()
-                .currentWeight(1.11)
+        //assert
+        PalletDTO expected = PalletDTO.builder()
+                .palletId(1)
                 .accountId(1)
+                .currentWeight(1.11)
+                .items(itemDTOs)
+                .build();
+
+        Assert.assertThat(actual, is(equalTo(expected)));
+
+        //verify
+        verifyNoInteractions(accountClient);
+        verify(palletCache, times(1)).get(1);
+        verifyNoMoreInteractions(palletCache);
+    }
+
+    @Test
+    public void getPalletById_ScenarioF() {
+        //arrange
+        PalletDTO cachedPallet = PalletDTO.builder()
                 .palletId(1)
+                .accountId(1)
+                .items(new ArrayList<>())
+                .currentWeight(1.11)
+                .destination("123 Fake st. Townsville, Statesoda 12345")
                 .build();
 
-        doReturn(mappedPallet).when(mapper).map(palletEntity, PalletDTO.class);
+        doReturn(cachedPallet).when(palletCache).get(1);
 
-        ItemDTO mappedItem = ItemDTO.builder()
-                .itemId(1)
-                .product("stuff: Boogaloo Unplugged")
-                .weight(1.11)
+        //act
+        PalletDTO actual = systemUnderTest.getPalletById(1, PalletView.SUMMARY);
+
+        //assert
+        Assert.assertThat(actual.getItems(), is(nullValue()));
+        Assert.assertThat(actual.getCurrentWeight(), is(1.11));
+        Assert.assertThat(actual.getDestination(), is("123 Fake st. Townsville, Statesoda 12345"));
+
+        //verify
+        verifyNoInteractions(palletRepo);
+        verifyNoInteractions(itemRepo);
+        verifyNoInteractions(accountClient);
+    }
+
+    @Test
+    public void getPalletVersion_ScenarioA() {
+        //arrange
+        doReturn(OptionalLong.empty()).when(palletCache).getVersion(1);
+        doReturn(3L).when(palletRepo).getVersion(1);
+
+        //act
+        long actual = systemUnderTest.getPalletVersion(1);
+
+        //assert
+        Assert.assertThat(actual, is(3L));
+
+        //verify
+        verify(writeBuffer, times(1)).awaitPallet(1);
+        verify(palletCache, times(1)).getVersion(1);
+        verify(palletRepo, times(1)).getVersion(1);
+        verifyNoMoreInteractions(palletRepo);
+        verifyNoInteractions(itemRepo);
+        verifyNoInteractions(accountClient);
+    }
+
+    @Test
+    public void getPalletVersion_ScenarioB() {
+        //arrange
+        doReturn(OptionalLong.of(5L)).when(palletCache).getVersion(1);
+
+        //act
+        long actual = systemUnderTest.getPalletVersion(1);
+
+        //assert
+        Assert.assertThat(actual, is(5L));
+
+        //verify
+        verify(palletCache, times(1)).getVersion(1);
+        verifyNoInteractions(palletRepo);
+        verifyNoInteractions(itemRepo);
+        verifyNoInteractions(accountClient);
+    }
+
+    @Test
+    public void getPalletsByIds_ScenarioA() {
+        //arrange
+        List<ItemEntity> firstItems = Collections.singletonList(ItemEntity.builder().itemId(1).palletId(1).weight(1.11).product("stuff").build());
+        List<ItemEntity> secondItems = Collections.singletonList(ItemEntity.builder().itemId(2).palletId(2).weight(2.22).product("things").build());
+
+        PalletEntity firstEntity = PalletEntity.builder().palletId(1).accountId(7).items(firstItems).build();
+        PalletEntity secondEntity = PalletEntity.builder().palletId(2).accountId(7).items(secondItems).build();
+
+        List<Integer> ids = Arrays.asList(1, 2);
+        doReturn(Arrays.asList(firstEntity, secondEntity)).when(palletRepo).getPalletsWithItems(ids);
+
+        doReturn(PalletDTO.builder().palletId(1).accountId(7).build()).when(mapper).toPalletDTO(firstEntity);
+        doReturn(PalletDTO.builder().palletId(2).accountId(7).build()).when(mapper).toPalletDTO(secondEntity);
+
+        List<ItemDTO> firstDTOs = Collections.singletonList(ItemDTO.builder().itemId(1).weight(1.11).product("stuff").build());
+        List<ItemDTO> secondDTOs = Collections.singletonList(ItemDTO.builder().itemId(2).weight(2.22).product("things").build());
+
+        doReturn(firstDTOs).when(mapper).toItemDTOs(firstItems);
+        doReturn(secondDTOs).when(mapper).toItemDTOs(secondItems);
+
+        AccountDTO accountDTO = AccountDTO.builder()
+                .accountId(7)
+                .address("123 Fake st.")
+                .city("Townsville")
+                .state("Statesoda")
+                .zip("12345")
                 .build();
 
+        doReturn(CompletableFuture.completedFuture(accountDTO)).when(accountClient).getAccountDetailsByIdAsync(7);
 
-        List<ItemDTO> mappedItems = new ArrayList<>();
-        mappedItems.add(mappedItem);
+        //act
+        List<PalletDTO> expected = Arrays.asList(
+                PalletDTO.builder().palletId(1).accountId(7).items(firstDTOs).currentWeight(1.11).destination(accountDTO.getMailingAddress()).build(),
+                PalletDTO.builder().palletId(2).accountId(7).items(secondDTOs).currentWeight(2.22).destination(accountDTO.getMailingAddress()).build());
+
+        List<PalletDTO> actual = systemUnderTest.getPalletsByIds(ids);
+
+        //assert
+        Assert.assertThat(actual, is(equalTo(expected)));
+
+        //verify
+        verify(palletRepo, times(1)).getPalletsWithItems(ids);
+        verifyNoMoreInteractions(palletRepo);
+        verifyNoInteractions(itemRepo);
+        verify(accountClient, times(1)).getAccountDetailsByIdAsync(7);
+        verifyNoMoreInteractions(accountClient);
+    }
+
+    @Test
+    public void addItemToTest_ScenarioA() {
+        //arrange
+        AccountDTO returnAccount = AccountDTO.builder()
+                .accountName("someCorp")
+                .state("Statesoda")
+                .city("Townsville")
+                .address("123 fake st")
+                .accountId(1)
+                .zip("12345")
+                .build();
 
-        doReturn(mappedItems).when(mapper).mapAsList(itemEntities, ItemDTO.class);
+        doReturn(returnAccount).when(accountClient).getCachedAccountDetailsById(1);
 
         ItemDTO addedItemDTO = ItemDTO.builder()
                 .product("stuff 2: Electric Boogaloo")
-                .weight(1.11)
+                .weight(2.22)
                 .build();
 
         ItemEntity addedItemEntity = ItemEntity.builder()
@@ -262,15 +533,47 @@ public class PalletServiceTests {
                 .product("stuff 2: Electric Boogaloo")
                 .build();
 
-        doReturn(addedItemEntity).when(mapper).map(addedItemDTO, ItemEntity.class);
+        doReturn(addedItemEntity).when(mapper).toItemEntity(addedItemDTO);
+
+        ItemEntity itemEntity = ItemEntity.builder()
+                .itemId(1)
+                .product("stuff")
+                .weight(1.11)
+                .palletId(1)
+                .build();
+
+        List<ItemEntity> itemEntities = new ArrayList<>();
+        itemEntities.add(itemEntity);
+        itemEntities.add(addedItemEntity);
+
+        PalletEntity palletEntity = PalletEntity.builder()
+                .palletId(1)
+                .accountId(1)
+                .version(4L)
+                .items(itemEntities)
+                .build();
+
+        doReturn(OptionalLong.of(4L)).when(itemRepo).saveItemsWithinWeight(1, Collections.singletonList(addedItemEntity), PalletDTO.MAX_WEIGHT);
+        doReturn(Collections.singletonList(palletEntity)).when(palletRepo).getPalletsWithItems(Collections.singleton(1));
+
+        PalletDTO mappedPallet = PalletDTO.builder()
+                .accountId(1)
+                .palletId(1)
+                .build();
 
-        doNothing().when(itemRepo).saveItem(addedItemEntity);
+        doReturn(mappedPallet).when(mapper).toPalletDTO(palletEntity);
+
+        List<ItemDTO> mappedItems = new ArrayList<>();
+        mappedItems.add(ItemDTO.builder().itemId(1).product("stuff").weight(1.11).build());
+        mappedItems.add(ItemDTO.builder().itemId(2).product("stuff 2: Electric Boogaloo").weight(2.22).build());
+
+        doReturn(mappedItems).when(mapper).toItemDTOs(itemEntities);
 
         //act
         PalletDTO expected = PalletDTO.builder()
                 .palletId(1)
                 .accountId(1)
-                .currentWeight(1.11)
+                .currentWeight(1.11 + 2.22)
                 .destination("123 fake st Townsville, Statesoda 12345")
                 .items(mappedItems)
                 .build();
@@ -279,97 +582,190 @@ public class PalletServiceTests {
 
         //assert
         Assert.assertThat(actual, is(equalTo(expected)));
+        Assert.assertThat(addedItemEntity.getPalletId(), is(1));
 
         //verify
-        verify(accountClient, times(1)).getAccountDetailsById(1);
-        verifyNoMoreInteractions(accountClient);
-        verify(palletRepo, times(1)).getPalletById(1);
-        verifyNoMoreInteractions(palletRepo);
-        verify(itemRepo, times(1)).getItemsByPalletId(1);
-        verify(itemRepo, times(1)).saveItem(addedItemEntity);
+        InOrder inOrder = inOrder(itemRepo, palletCache, palletRepo);
+        inOrder.verify(itemRepo, times(1)).saveItemsWithinWeight(1, Collections.singletonList(addedItemEntity), PalletDTO.MAX_WEIGHT);
+        inOrder.verify(palletCache, times(1)).update(eq(1), eq(4L), any());
+        inOrder.verify(palletRepo, times(1)).getPalletsWithItems(Collections.singleton(1));
         verifyNoMoreInteractions(itemRepo);
-        verify(mapper, times(1)).map(palletEntity, PalletDTO.class);
-        verify(mapper, times(1)).mapAsList(itemEntities, ItemDTO.class);
-        verify(mapper, times(1)).map(addedItemDTO, ItemEntity.class);
-        verifyNoMoreInteractions(mapper);
+        verifyNoMoreInteractions(palletRepo);
+        verify(accountClient, times(1)).getCachedAccountDetailsById(1);
+        verifyNoMoreInteractions(accountClient);
+        verify(palletCache, times(1)).put(1, 4L, expected);
     }
 
     @Test(expected = PalletMaxWeightException.class)
     public void addItemToPallet_ScenarioB() throws PalletMaxWeightException {
         //arrange
-        ItemDTO returnItem = ItemDTO.builder()
-                .weight(1.11)
-                .product("stuff: Boogaloo Unplugged")
-                .itemId(1)
+        ItemDTO addedItemDTO = ItemDTO.builder()
+                .product("stuff 2: Electric Boogaloo")
+                .weight(4600d)
+                .build();
+
+        ItemEntity addedItemEntity = ItemEntity.builder()
+                .weight(4600d)
+                .product("stuff 2: Electric Boogaloo")
+                .build();
+
+        doReturn(addedItemEntity).when(mapper).toItemEntity(addedItemDTO);
+        doReturn(OptionalLong.empty()).when(itemRepo).saveItemsWithinWeight(1, Collections.singletonList(addedItemEntity), PalletDTO.MAX_WEIGHT);
+        doReturn(1.11).when(itemRepo).getTotalWeightByPalletId(1);
+
+        //act
+        PalletDTO actual = systemUnderTest.addItemToPallet(addedItemDTO, 1);
+
+        //assert
+
+        //verify
+    }
+
+    @Test
+    public void addItemToPallet_ScenarioC() {
+        //arrange
+        ItemDTO addedItemDTO = ItemDTO.builder()
+                .product("Bubbly")
+                .weight(25.34)
                 .build();
 
-        List<ItemDTO> returnItems = new ArrayList<>();
-        returnItems.add(returnItem);
+        ItemEntity addedItemEntity = ItemEntity.builder()
+                .weight(25.34)
+                .product("Bubbly")
+                .build();
+
+        List<ItemEntity> itemEntities = Collections.singletonList(addedItemEntity);
 
-        PalletDTO returnPallet = PalletDTO.builder()
+        PalletEntity palletEntity = PalletEntity.builder()
                 .palletId(1)
                 .accountId(1)
-                .destination("123 fake st Townsville, Statesoda 12345")
-                .currentWeight(1.11)
-                .items(returnItems)
+                .items(itemEntities)
                 .build();
 
-        AccountDTO returnAccount = AccountDTO.builder()
-                .accountName("someCorp")
-                .state("Statesoda")
-                .city("Townsville")
-                .address("123 fake st")
+        AccountDTO accountDTO = AccountDTO.builder()
                 .accountId(1)
+                .address("123 Fake st.")
+                .city("Townsville")
+                .state("Statesoda")
                 .zip("12345")
                 .build();
 
-        doReturn(returnAccount).when(accountClient).getAccountDetailsById(returnPallet.getPalletId());
-
-        PalletEntity palletEntity = PalletEntity.builder()
+        PalletEntity before = PalletEntity.builder()
                 .palletId(1)
                 .accountId(1)
+                .items(Collections.emptyList())
                 .build();
 
-        ItemEntity itemEntity = ItemEntity.builder()
-                .itemId(1)
-                .product("stuff: Boogaloo Unplugged")
-                .weight(1.11)
+        // never completes, so the test would hang if a buffered write waited for its commit
+        PendingWrite write = new PendingWrite(true, before, itemEntities, new CompletableFuture<>());
+
+        doReturn(true).when(writeBuffer).isEnabled();
+        doReturn(addedItemEntity).when(mapper).toItemEntity(addedItemDTO);
+        doReturn(write).when(writeBuffer).add(addedItemEntity, PalletDTO.MAX_WEIGHT);
+        doReturn(PalletDTO.builder().palletId(1).accountId(1).build()).when(mapper).toPalletDTO(palletEntity);
+        doReturn(Collections.singletonList(addedItemDTO)).when(mapper).toItemDTOs(itemEntities);
+        doReturn(accountDTO).when(accountClient).getCachedAccountDetailsById(1);
+
+        //act
+        PalletDTO actual = systemUnderTest.addItemToPallet(addedItemDTO, 1, Durability.BUFFERED);
+
+        //assert
+        PalletDTO expected = PalletDTO.builder()
                 .palletId(1)
+                .accountId(1)
+                .items(Collections.singletonList(addedItemDTO))
+                .currentWeight(25.34)
+                .destination(accountDTO.getMailingAddress())
                 .build();
 
-        List<ItemEntity> itemEntities = new ArrayList<>();
-        itemEntities.add(itemEntity);
+        Assert.assertThat(actual, is(equalTo(expected)));
 
-        doReturn(palletEntity).when(palletRepo).getPalletById(returnPallet.getPalletId());
-        doReturn(itemEntities).when(itemRepo).getItemsByPalletId(returnPallet.getPalletId());
+        //verify
+        verify(writeBuffer, times(1)).add(addedItemEntity, PalletDTO.MAX_WEIGHT);
+        verifyNoInteractions(itemRepo);
+        verifyNoInteractions(palletRepo);
+    }
 
-        PalletDTO mappedPallet = PalletDTO.builder()
-                .currentWeight(1.11)
-                .accountId(1)
+    @Test
+    public void addItemsToPallet_ScenarioA() {
+        //arrange
+        List<ItemDTO> addedItems = new ArrayList<>();
+        addedItems.add(ItemDTO.builder().product("stuff").weight(1.11).build());
+        addedItems.add(ItemDTO.builder().product("things").weight(2.22).build());
+
+        List<ItemEntity> addedEntities = new ArrayList<>();
+        addedEntities.add(ItemEntity.builder().product("stuff").weight(1.11).build());
+        addedEntities.add(ItemEntity.builder().product("things").weight(2.22).build());
+
+        PalletEntity palletEntity = PalletEntity.builder()
                 .palletId(1)
+                .accountId(1)
+                .version(2L)
+                .items(addedEntities)
                 .build();
 
-        doReturn(mappedPallet).when(mapper).map(palletEntity, PalletDTO.class);
+        doReturn(addedEntities).when(mapper).toItemEntities(addedItems);
+        doReturn(OptionalLong.of(2L)).when(itemRepo).saveItemsWithinWeight(1, addedEntities, PalletDTO.MAX_WEIGHT);
+        doReturn(Collections.singletonList(palletEntity)).when(palletRepo).getPalletsWithItems(Collections.singleton(1));
 
-        ItemDTO mappedItem = ItemDTO.builder()
-                .itemId(1)
-                .product("stuff: Boogaloo Unplugged")
-                .weight(1.11)
+        PalletDTO mappedPallet = PalletDTO.builder()
+                .palletId(1)
+                .accountId(1)
                 .build();
 
+        doReturn(mappedPallet).when(mapper).toPalletDTO(palletEntity);
 
         List<ItemDTO> mappedItems = new ArrayList<>();
-        mappedItems.add(mappedItem);
+        mappedItems.add(ItemDTO.builder().itemId(1).product("stuff").weight(1.11).build());
+        mappedItems.add(ItemDTO.builder().itemId(2).product("things").weight(2.22).build());
 
-        doReturn(mappedItems).when(mapper).mapAsList(itemEntities, ItemDTO.class);
+        doReturn(mappedItems).when(mapper).toItemDTOs(addedEntities);
+        doReturn(null).when(accountClient).getCachedAccountDetailsById(1);
 
-        ItemDTO addedItemDTO = ItemDTO.builder()
-                .product("stuff 2: Electric Boogaloo")
-                .weight(4600d)
+        //act
+        PalletDTO expected = PalletDTO.builder()
+                .palletId(1)
+                .accountId(1)
+                .currentWeight(1.11 + 2.22)
+                .items(mappedItems)
                 .build();
 
+        PalletDTO actual = systemUnderTest.addItemsToPallet(addedItems, 1);
+
+        //assert
+        Assert.assertThat(actual, is(equalTo(expected)));
+        Assert.assertThat(addedEntities.get(0).getPalletId(), is(1));
+        Assert.assertThat(addedEntities.get(1).getPalletId(), is(1));
+
+        //verify
+        verify(itemRepo, times(1)).saveItemsWithinWeight(1, addedEntities, PalletDTO.MAX_WEIGHT);
+        verifyNoMoreInteractions(itemRepo);
+        verify(palletRepo, times(1)).getPalletsWithItems(Collections.singleton(1));
+        verifyNoMoreInteractions(palletRepo);
+        verify(accountClient, times(1)).getCachedAccountDetailsById(1);
+        verifyNoMoreInteractions(accountClient);
+        verify(palletCache, times(1)).update(eq(1), eq(2L), any());
+        verify(palletCache, times(1)).invalidate(1, 2L);
+        verifyNoMoreInteractions(palletCache);
+    }
+
+    @Test(expected = PalletMaxWeightException.class)
+    public void addItemsToPallet_ScenarioB() throws PalletMaxWeightException {
+        //arrange
+        List<ItemDTO> addedItems = new ArrayList<>();
+        addedItems.add(ItemDTO.builder().product("stuff").weight(2300d).build());
+        addedItems.add(ItemDTO.builder().product("things").weight(2300d).build());
+
+        List<ItemEntity> addedEntities = new ArrayList<>();
+        addedEntities.add(ItemEntity.builder().product("stuff").weight(2300d).build());
+        addedEntities.add(ItemEntity.builder().product("things").weight(2300d).build());
+
+        doReturn(addedEntities).when(mapper).toItemEntities(addedItems);
+        doReturn(OptionalLong.empty()).when(itemRepo).saveItemsWithinWeight(1, addedEntities, PalletDTO.MAX_WEIGHT);
+        doReturn(1.11).when(itemRepo).getTotalWeightByPalletId(1);
+
         //act
-        PalletDTO actual = systemUnderTest.addItemToPallet(addedItemDTO, 1);
+        PalletDTO actual = systemUnderTest.addItemsToPallet(addedItems, 1);
 
         //assert
 
@@ -377,25 +773,53 @@ public class PalletServiceTests {
     }
 
     @Test
-    public void removeItemFromPallet_ScenarioA() {
+    public void addItemsToPallet_ScenarioC() {
         //arrange
-        ItemDTO returnItem = ItemDTO.builder()
-                .weight(1.11)
-                .product("stuff: Boogaloo Unplugged")
-                .itemId(1)
-                .build();
+        List<ItemDTO> addedItems = new ArrayList<>();
+        addedItems.add(ItemDTO.builder().product("things").weight(2.22).build());
+
+        List<ItemEntity> addedEntities = new ArrayList<>();
+        addedEntities.add(ItemEntity.builder().itemId(2).product("things").weight(2.22).build());
 
-        List<ItemDTO> returnItems = new ArrayList<>();
-        returnItems.add(returnItem);
+        List<ItemDTO> mappedItems = new ArrayList<>();
+        mappedItems.add(ItemDTO.builder().itemId(2).product("things").weight(2.22).build());
+
+        List<ItemDTO> cachedItems = new ArrayList<>();
+        cachedItems.add(ItemDTO.builder().itemId(1).product("stuff").weight(1.11).build());
 
-        PalletDTO returnPallet = PalletDTO.builder()
+        PalletDTO cached = PalletDTO.builder()
                 .palletId(1)
                 .accountId(1)
+                .items(cachedItems)
                 .destination("123 fake st Townsville, Statesoda 12345")
                 .currentWeight(1.11)
-                .items(returnItems)
                 .build();
 
+        doReturn(addedEntities).when(mapper).toItemEntities(addedItems);
+        doReturn(mappedItems).when(mapper).toItemDTOs(addedEntities);
+        doReturn(OptionalLong.of(3L)).when(itemRepo).saveItemsWithinWeight(1, addedEntities, PalletDTO.MAX_WEIGHT);
+        doAnswer(invocation -> invocation.<UnaryOperator<PalletDTO>>getArgument(2).apply(cached))
+                .when(palletCache).update(eq(1), eq(3L), any());
+
+        //act
+        PalletDTO actual = systemUnderTest.addItemsToPallet(addedItems, 1);
+
+        //assert
+        Assert.assertThat(actual.getItems().size(), is(2));
+        Assert.assertThat(actual.getItems().get(1).getItemId(), is(2));
+        Assert.assertThat(actual.getCurrentWeight(), is(1.11 + 2.22));
+        Assert.assertThat(actual.getDestination(), is("123 fake st Townsville, Statesoda 12345"));
+
+        //verify
+        verify(itemRepo, times(1)).saveItemsWithinWeight(1, addedEntities, PalletDTO.MAX_WEIGHT);
+        verifyNoMoreInteractions(itemRepo);
+        verifyNoInteractions(palletRepo);
+        verifyNoInteractions(accountClient);
+    }
+
+    @Test
+    public void removeItemFromPallet_ScenarioA() {
+        //arrange
         AccountDTO returnAccount = AccountDTO.builder()
                 .accountName("someCorp")
                 .state("Statesoda")
@@ -405,47 +829,30 @@ public class PalletServiceTests {
                 .zip("12345")
                 .build();
 
-        doReturn(returnAccount).when(accountClient).getAccountDetailsById(returnPallet.getPalletId());
+        doReturn(returnAccount).when(accountClient).getCachedAccountDetailsById(1);
+
+        List<ItemEntity> itemEntities = new ArrayList<>();
 
         PalletEntity palletEntity = PalletEntity.builder()
                 .palletId(1)
                 .accountId(1)
+                .version(1L)
+                .items(itemEntities)
                 .build();
 
-        ItemEntity itemEntity = ItemEntity.builder()
-                .itemId(1)
-                .product("stuff: Boogaloo Unplugged")
-                .weight(1.11)
-                .palletId(1)
-                .build();
-
-        List<ItemEntity> itemEntities = new ArrayList<>();
-        itemEntities.add(itemEntity);
-
-        doReturn(palletEntity).when(palletRepo).getPalletById(returnPallet.getPalletId());
-        doReturn(itemEntities).when(itemRepo).getItemsByPalletId(returnPallet.getPalletId());
+        doReturn(OptionalLong.of(1L)).when(itemRepo).removeItem(1, 1);
+        doReturn(Collections.singletonList(palletEntity)).when(palletRepo).getPalletsWithItems(Collections.singleton(1));
 
         PalletDTO mappedPallet = PalletDTO.builder()
-                .currentWeight(1.11)
                 .accountId(1)
                 .palletId(1)
                 .build();
 
-        doReturn(mappedPallet).when(mapper).map(palletEntity, PalletDTO.class);
-
-        ItemDTO mappedItem = ItemDTO.builder()
-                .itemId(1)
-                .product("stuff: Boogaloo Unplugged")
-                .weight(1.11)
-                .build();
-
+        doReturn(mappedPallet).when(mapper).toPalletDTO(palletEntity);
 
         List<ItemDTO> mappedItems = new ArrayList<>();
-        mappedItems.add(mappedItem);
-
-        doReturn(mappedItems).when(mapper).mapAsList(itemEntities, ItemDTO.class);
 
-        doNothing().when(itemRepo).removeItem(1);
+        doReturn(mappedItems).when(mapper).toItemDTOs(itemEntities);
 
         //act
 
@@ -456,7 +863,7 @@ public class PalletServiceTests {
                 .accountId(1)
                 .items(expectedList)
                 .destination("123 fake st Townsville, Statesoda 12345")
-                .currentWeight(1.11)
+                .currentWeight(0d)
                 .build();
 
         PalletDTO actualPallet = systemUnderTest.removeItemFromPallet(1,1);
@@ -465,92 +872,124 @@ public class PalletServiceTests {
         Assert.assertThat(actualPallet, is(equalTo(expectedPallet)));
 
         //verify
-        verify(accountClient, times(1)).getAccountDetailsById(1);
+        InOrder inOrder = inOrder(itemRepo, palletCache, palletRepo);
+        inOrder.verify(itemRepo, times(1)).removeItem(1, 1);
+        inOrder.verify(palletCache, times(1)).update(eq(1), eq(1L), any());
+        inOrder.verify(palletRepo, times(1)).getPalletsWithItems(Collections.singleton(1));
+        verify(accountClient, times(1)).getCachedAccountDetailsById(1);
         verifyNoMoreInteractions(accountClient);
-        verify(palletRepo, times(1)).getPalletById(1);
         verifyNoMoreInteractions(palletRepo);
-        verify(itemRepo, times(1)).getItemsByPalletId(1);
-        verify(itemRepo, times(1)).removeItem(1);
         verifyNoMoreInteractions(itemRepo);
-        verify(mapper, times(1)).map(palletEntity, PalletDTO.class);
-        verify(mapper, times(1)).mapAsList(itemEntities, ItemDTO.class);
+        verify(palletCache, times(1)).put(1, 1L, actualPallet);
+        verify(mapper, times(1)).toPalletDTO(palletEntity);
+        verify(mapper, times(1)).toItemDTOs(itemEntities);
         verifyNoMoreInteractions(mapper);
     }
 
-    @Test(expected = ItemNotOnPalletException.class)
-    public void removeItemFromPallet_ScenarioB() throws ItemNotOnPalletException{
+    @Test
+    public void removeItemFromPallet_ScenarioD() {
         //arrange
-        ItemDTO returnItem = ItemDTO.builder()
-                .weight(1.11)
-                .product("stuff: Boogaloo Unplugged")
-                .itemId(1)
-                .build();
-
-        List<ItemDTO> returnItems = new ArrayList<>();
-        returnItems.add(returnItem);
-
-        PalletDTO returnPallet = PalletDTO.builder()
+        PalletDTO updated = PalletDTO.builder()
                 .palletId(1)
                 .accountId(1)
+                .items(new ArrayList<>())
                 .destination("123 fake st Townsville, Statesoda 12345")
-                .currentWeight(1.11)
-                .items(returnItems)
+                .currentWeight(0d)
                 .build();
 
-        AccountDTO returnAccount = AccountDTO.builder()
-                .accountName("someCorp")
-                .state("Statesoda")
-                .city("Townsville")
-                .address("123 fake st")
-                .accountId(1)
-                .zip("12345")
-                .build();
+        doReturn(OptionalLong.of(2L)).when(itemRepo).removeItem(1, 1);
+        doReturn(updated).when(palletCache).update(eq(1), eq(2L), any());
 
-        doReturn(returnAccount).when(accountClient).getAccountDetailsById(returnPallet.getPalletId());
+        //act
+        PalletDTO actual = systemUnderTest.removeItemFromPallet(1, 1);
 
-        PalletEntity palletEntity = PalletEntity.builder()
-                .palletId(1)
-                .accountId(1)
-                .build();
+        //assert
+        Assert.assertThat(actual, is(sameInstance(updated)));
 
-        ItemEntity itemEntity = ItemEntity.builder()
-                .itemId(1)
-                .product("stuff: Boogaloo Unplugged")
-                .weight(1.11)
-                .palletId(1)
-                .build();
+        //verify
+        verify(itemRepo, times(1)).removeItem(1, 1);
+        verifyNoMoreInteractions(itemRepo);
+        verifyNoInteractions(palletRepo);
+        verifyNoInteractions(accountClient);
+        verifyNoInteractions(mapper);
+    }
 
-        List<ItemEntity> itemEntities = new ArrayList<>();
-        itemEntities.add(itemEntity);
+    @Test(expected = ItemNotOnPalletException.class)
+    public void removeItemFromPallet_ScenarioB() throws ItemNotOnPalletException{
+        //arrange
+        doReturn(OptionalLong.empty()).when(itemRepo).removeItem(1, 2);
 
-        doReturn(palletEntity).when(palletRepo).getPalletById(returnPallet.getPalletId());
-        doReturn(itemEntities).when(itemRepo).getItemsByPalletId(returnPallet.getPalletId());
+        //act
+        PalletDTO actual = systemUnderTest.removeItemFromPallet(2, 1);
+        //assert
 
-        PalletDTO mappedPallet = PalletDTO.builder()
-                .currentWeight(1.11)
-                .accountId(1)
-                .palletId(1)
-                .build();
+        //verify
 
-        doReturn(mappedPallet).when(mapper).map(palletEntity, PalletDTO.class);
+    }
 
-        ItemDTO mappedItem = ItemDTO.builder()
-                .itemId(1)
-                .product("stuff: Boogaloo Unplugged")
-                .weight(1.11)
-                .build();
+    @Test
+    public void removeItemFromPallet_ScenarioC() {
+        //arrange
+        doReturn(OptionalLong.empty()).when(itemRepo).removeItem(1, 2);
 
+        //act
+        try {
+            systemUnderTest.removeItemFromPallet(2, 1);
+            Assert.fail();
+        } catch (ItemNotOnPalletException ex) {
+            //assert
+            Assert.assertThat(ex.getClass(), is(equalTo(ItemNotOnPalletException.class)));
+        }
 
-        List<ItemDTO> mappedItems = new ArrayList<>();
-        mappedItems.add(mappedItem);
+        //verify
+        verify(metrics, times(1)).recordItemNotOnPallet();
+        verifyNoInteractions(accountClient);
+        verifyNoInteractions(palletRepo);
+        verifyNoInteractions(palletCache);
+    }
+
+    @Test
+    public void removeItemsFromPallet_ScenarioA() {
+        //arrange
+        Set<Integer> itemIds = new LinkedHashSet<>();
+        itemIds.add(1);
+        itemIds.add(2);
+        itemIds.add(3);
 
-        doReturn(mappedItems).when(mapper).mapAsList(itemEntities, ItemDTO.class);
+        List<Integer> removed = new ArrayList<>();
+        removed.add(1);
+        removed.add(3);
+
+        ItemRemovalEntity removal = ItemRemovalEntity.builder()
+                .removedItemIds(removed)
+                .version(4L)
+                .build();
+
+        doReturn(removal).when(itemRepo).removeItemsFromPallet(1, itemIds);
 
         //act
-        PalletDTO actual = systemUnderTest.removeItemFromPallet(2, 1);
+        ItemRemovalDTO expected = ItemRemovalDTO.builder()
+                .palletId(1)
+                .removedItemIds(removed)
+                .notOnPalletItemIds(Collections.singletonList(2))
+                .build();
+
+        ItemRemovalDTO actual = systemUnderTest.removeItemsFromPallet(itemIds, 1);
+
         //assert
+        Assert.assertThat(actual, is(equalTo(expected)));
 
         //verify
+        verify(itemRepo, times(1)).removeItemsFromPallet(1, itemIds);
+        verifyNoMoreInteractions(itemRepo);
+        verifyNoInteractions(palletRepo);
+        verify(palletCache, times(1)).invalidate(1, 4L);
+        verifyNoInteractions(accountClient);
+    }
 
+    private static CompletableFuture<AccountDTO> failedAccountLookup() {
+        CompletableFuture<AccountDTO> lookup = new CompletableFuture<>();
+        lookup.completeExceptionally(new AccountAccessException());
+        return lookup;
     }
 }
@@ -0,0 +1,122 @@
+package co.newlabs.unitTests;
+
+import co.newlabs.cache.SingleFlight;
+import co.newlabs.exception.AccountAccessException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+
+public class SingleFlightTests {
+    private final SingleFlight<Integer, String> systemUnderTest = new SingleFlight<>(value -> value + " copy");
+
+    @Test
+    public void execute_ScenarioA() {
+        //arrange
+        AtomicInteger fetches = new AtomicInteger();
+        CompletableFuture<String> fetch = new CompletableFuture<>();
+
+        //act
+        CompletableFuture<String> first = systemUnderTest.execute(1, () -> {
+            fetches.incrementAndGet();
+            return fetch;
+        });
+        CompletableFuture<String> second = systemUnderTest.execute(1, () -> {
+            fetches.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+        fetch.complete("account");
+
+        //assert
+        Assert.assertThat(first.join(), is("account"));
+        Assert.assertThat(second.join(), is("account copy"));
+        Assert.assertThat(fetches.get(), is(1));
+        Assert.assertThat(systemUnderTest.getCollapsedCount(), is(1L));
+        Assert.assertThat(systemUnderTest.size(), is(0));
+    }
+
+    @Test
+    public void execute_ScenarioB() {
+        //arrange
+        CompletableFuture<String> fetch = new CompletableFuture<>();
+        CompletableFuture<String> first = systemUnderTest.execute(1, () -> fetch);
+        CompletableFuture<String> second = systemUnderTest.execute(1, () -> fetch);
+
+        //act
+        fetch.completeExceptionally(new AccountAccessException());
+
+        //assert
+        try {
+            first.join();
+            Assert.fail();
+        } catch (CompletionException ex) {
+            Assert.assertThat(ex.getCause(), is(instanceOf(AccountAccessException.class)));
+        }
+        try {
+            second.join();
+            Assert.fail();
+        } catch (CompletionException ex) {
+            Assert.assertThat(ex.getCause(), is(instanceOf(AccountAccessException.class)));
+        }
+        Assert.assertThat(systemUnderTest.size(), is(0));
+    }
+
+    @Test
+    public void execute_ScenarioC() {
+        //arrange
+        AtomicInteger fetches = new AtomicInteger();
+        systemUnderTest.execute(1, () -> {
+            fetches.incrementAndGet();
+            return CompletableFuture.completedFuture("account");
+        }).join();
+
+        //act
+        String actual = systemUnderTest.execute(1, () -> {
+            fetches.incrementAndGet();
+            return CompletableFuture.completedFuture("newer account");
+        }).join();
+
+        //assert
+        Assert.assertThat(actual, is("newer account"));
+        Assert.assertThat(fetches.get(), is(2));
+        Assert.assertThat(systemUnderTest.getCollapsedCount(), is(0L));
+    }
+
+    @Test
+    public void forget_ScenarioA() {
+        //arrange
+        CompletableFuture<String> stale = new CompletableFuture<>();
+        CompletableFuture<String> first = systemUnderTest.execute(1, () -> stale);
+
+        //act
+        systemUnderTest.forget(1);
+        CompletableFuture<String> second = systemUnderTest.execute(1, () -> CompletableFuture.completedFuture("newer account"));
+        stale.complete("account");
+
+        //assert
+        Assert.assertThat(first.join(), is("account"));
+        Assert.assertThat(second.join(), is("newer account"));
+        Assert.assertThat(systemUnderTest.getCollapsedCount(), is(0L));
+    }
+
+    @Test
+    public void call_ScenarioA() {
+        //act
+        try {
+            systemUnderTest.call(1, () -> {
+                throw new AccountAccessException();
+            });
+            Assert.fail();
+        } catch (AccountAccessException ex) {
+            //assert
+            Assert.assertThat(systemUnderTest.size(), is(0));
+        }
+
+        Assert.assertThat(systemUnderTest.call(1, () -> "account"), is("account"));
+    }
+}
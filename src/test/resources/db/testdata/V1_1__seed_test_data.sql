@@ -2,4 +2,6 @@ INSERT INTO items (itemId, palletId, weight, product) values (1, 1, 1.11, 'stuff
 INSERT INTO pallets (palletId, accountId) values (1, 1);
 
 INSERT INTO items (itemId, palletId, weight, product) values (2, 2, 2.22, 'things');
-INSERT INTO pallets (palletId, accountId) values (2, 2);
\ No newline at end of file
+INSERT INTO pallets (palletId, accountId) values (2, 2);
+
+ALTER TABLE items ALTER COLUMN itemId RESTART WITH 3;
@@ -1,12 +0,0 @@
-create table items (
-    itemId int,
-    palletId int,
-    weight double,
-    product varchar(25)
-);
-
-create table pallets (
-    palletId int,
-    accountId int
-);
-